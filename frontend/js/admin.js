@@ -267,7 +267,16 @@ async function editBook(bookId) {
     document.getElementById('book-author').value = book.author;
     document.getElementById('book-category').value = book.categoryId || '';
     document.getElementById('book-price').value = book.price;
-    document.getElementById('book-description').value = book.description || '';
+
+    // Danh sách chỉ trả về BookSummary (không có description) -> lấy chi tiết sách
+    let description = '';
+    try {
+        const detail = await apiGet(`/books/${bookId}`);
+        description = detail.description || '';
+    } catch (error) {
+        console.error('Error loading book detail:', error);
+    }
+    document.getElementById('book-description').value = description;
 
     const modal = new bootstrap.Modal(document.getElementById('book-modal'));
     modal.show();
@@ -261,9 +261,9 @@ async function searchBooks(keyword) {
         showLoading(true);
 
         // Gọi API search từ backend
-        const data = await apiGet(`/books/search?keyword=${encodeURIComponent(keyword)}`);
+        const data = await apiGet(`/books/search?keyword=${encodeURIComponent(keyword)}&limit=50`);
 
-        // Backend trả về: { keyword, count, books }
+        // Backend trả về: { keyword, count, total, page, limit, totalPages, books } (sắp xếp theo độ liên quan)
         const filteredBooks = data.books || [];
         currentFilteredBooks = filteredBooks;
 
@@ -13,6 +13,7 @@
  * POST   /cart/add      - Thêm vào giỏ
  * PUT    /cart/update   - Cập nhật số lượng
  * DELETE /cart/remove   - Xóa khỏi giỏ (body: { bookId })
+ * POST   /cart/batch    - Nhiều thao tác add/update/remove trong 1 request
  * POST   /checkout      - Thanh toán
  */
 
@@ -23,6 +24,11 @@
 let cartItems = [];      // Lưu trữ items trong giỏ
 let cartTotal = 0;       // Tổng tiền
 
+// Gom các lần bấm +/- liên tiếp: bookId -> số lượng mới, gửi sau CART_BATCH_DELAY_MS
+const CART_BATCH_DELAY_MS = 400;
+let pendingQuantities = {};
+let batchTimer = null;
+
 // ============================================
 // FETCH CART
 // ============================================
@@ -103,7 +109,8 @@ function createCartItemHTML(item) {
     // Log full item structure để debug
     console.log('Creating cart item HTML - Full item:', JSON.stringify(item, null, 2));
 
-    const book = item.book;
+    // Backend trả về snapshot title/author/price ngay trên item
+    const book = item.title !== undefined ? item : item.book;
     // Ưu tiên lấy bookId từ item.bookId (backend trả về), nếu không thì thử từ book object
     const bookId = item.bookId || (book ? (book.id || book._id) : null);
     const quantity = item.quantity || 1;
@@ -328,26 +335,53 @@ async function updateQuantity(bookId, change) {
             return;
         }
 
-        showLoading(true);
+        // Cập nhật giao diện ngay, gom các lần bấm liên tiếp thành 1 request POST /cart/batch
+        item.quantity = newQuantity;
+        if (item.price !== undefined) {
+            item.subtotal = item.price * newQuantity;
+        }
+        displayCart();
 
-        // Gọi API cập nhật
-        const response = await apiPut('/cart/update', {
-            bookId: bookId,
-            quantity: newQuantity
-        });
+        pendingQuantities[bookId] = newQuantity;
+        clearTimeout(batchTimer);
+        batchTimer = setTimeout(flushCartOperations, CART_BATCH_DELAY_MS);
 
-        console.log('API response:', response);
+    } catch (error) {
+        console.error('Error updating quantity:', error);
+        showToast(error.message || 'Không thể cập nhật số lượng', 'error');
+    }
+}
 
-        // Lấy lại giỏ hàng từ backend để đồng bộ
-        await fetchCart();
+/**
+ * Gửi các thay đổi số lượng đang chờ trong 1 request
+ * POST /cart/batch - body: { operations: [{ action, bookId, quantity }] }
+ */
+async function flushCartOperations() {
+    const operations = Object.entries(pendingQuantities).map(([bookId, quantity]) => ({
+        action: 'update',
+        bookId: bookId,
+        quantity: quantity
+    }));
+    pendingQuantities = {};
+    if (operations.length === 0) {
+        return;
+    }
+
+    try {
+        const data = await apiPost('/cart/batch', { operations: operations });
+
+        // Backend trả về giỏ hàng sau khi cập nhật - không cần gọi lại GET /cart
+        cartItems = data.items || [];
+        cartTotal = data.totalAmount || 0;
+        displayCart();
 
         showToast('Đã cập nhật số lượng', 'success');
 
     } catch (error) {
         console.error('Error updating quantity:', error);
         showToast(error.message || 'Không thể cập nhật số lượng', 'error');
-    } finally {
-        showLoading(false);
+        // Đồng bộ lại với backend
+        await fetchCart();
     }
 }
 
@@ -366,11 +400,14 @@ async function removeFromCart(bookId) {
     });
 
     // Xác nhận trước khi xóa
-    const bookTitle = item && item.book ? item.book.title : 'sách này';
+    const bookTitle = item && (item.title || (item.book && item.book.title)) || 'sách này';
     if (!confirm(`Bạn có chắc muốn xóa "${bookTitle}" khỏi giỏ hàng?`)) {
         return;
     }
 
+    // Bỏ thay đổi số lượng đang chờ của sách này
+    delete pendingQuantities[bookId];
+
     try {
         showLoading(true);
 
@@ -403,6 +440,12 @@ async function removeFromCart(bookId) {
  * Xử lý thanh toán
  */
 async function handleCheckout() {
+    // Gửi các thay đổi số lượng còn chờ trước khi thanh toán
+    if (Object.keys(pendingQuantities).length > 0) {
+        clearTimeout(batchTimer);
+        await flushCartOperations();
+    }
+
     // Kiểm tra giỏ hàng có trống không
     if (!cartItems || cartItems.length === 0) {
         showToast('Giỏ hàng trống!', 'warning');
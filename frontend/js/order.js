@@ -92,7 +92,8 @@ function createOrderHTML(order) {
     const orderNumber = order.orderNumber || `#${order.orderId}`;
     const createdAt = formatDate(order.createdAt);
     const totalAmount = formatCurrency(order.totalAmount);
-    const itemCount = order.itemCount || 0;
+    // itemCount null: don cu chua duoc backfill
+    const itemCountText = order.itemCount != null ? `${order.itemCount} sản phẩm` : 'Xem chi tiết';
     const status = order.status || 'PENDING';
 
     // Xác định màu badge và text hiển thị
@@ -146,7 +147,7 @@ function createOrderHTML(order) {
             <div class="order-body">
                 <div class="order-items-preview">
                     <i class="fas fa-book"></i>
-                    <span>${itemCount} sản phẩm</span>
+                    <span>${itemCountText}</span>
                 </div>
             </div>
             <div class="order-footer">
@@ -2,6 +2,7 @@ package com.app.dangdoanhtoai2280603283;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * BOOK MANAGEMENT API
@@ -9,6 +10,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * Tac gia: Dang Doanh Toai - 2280603283
  */
 @SpringBootApplication
+@EnableScheduling
 public class Dangdoanhtoai2280603283Application {
 
 	public static void main(String[] args) {
@@ -0,0 +1,33 @@
+package com.app.dangdoanhtoai2280603283.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cau hinh gio hang (cart.*), doc 1 lan va dung chung
+ * - cart.abandoned-ttl-days: gio khong thay doi qua so ngay nay bi xoa (TTL index + CartSweeper)
+ *   Phai >= 1: TTL 0 se xoa moi gio ngay khi TTL monitor chay
+ */
+@Getter
+@Component
+public class CartProperties {
+
+    @Value("${cart.abandoned-ttl-days:30}")
+    private long abandonedTtlDays;
+
+    @PostConstruct
+    public void validate() {
+        if (abandonedTtlDays < 1) {
+            throw new IllegalStateException(
+                    "cart.abandoned-ttl-days phai >= 1, hien tai: " + abandonedTtlDays);
+        }
+    }
+
+    public Duration getAbandonedTtl() {
+        return Duration.ofDays(abandonedTtlDays);
+    }
+}
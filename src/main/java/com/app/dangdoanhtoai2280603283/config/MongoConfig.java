@@ -2,6 +2,8 @@ package com.app.dangdoanhtoai2280603283.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.core.mapping.event.ValidatingMongoEventListener;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
@@ -9,6 +11,8 @@ import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 /**
  * MongoDB Configuration
  * Enable auditing cho createdAt, updatedAt
+ * Dang ky MongoTransactionManager de @Transactional chay trong multi-document transaction
+ * (MongoDB can chay o che do replica set)
  */
 @Configuration
 @EnableMongoAuditing
@@ -18,4 +22,9 @@ public class MongoConfig {
     public ValidatingMongoEventListener validatingMongoEventListener(LocalValidatorFactoryBean factory) {
         return new ValidatingMongoEventListener(factory);
     }
+
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
 }
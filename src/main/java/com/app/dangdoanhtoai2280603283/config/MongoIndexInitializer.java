@@ -0,0 +1,83 @@
+package com.app.dangdoanhtoai2280603283.config;
+
+import com.app.dangdoanhtoai2280603283.model.Book;
+import com.app.dangdoanhtoai2280603283.model.Cart;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Tao cac index MongoDB khong khai bao duoc bang annotation
+ * - Text index cua books (title, author, description, co trong so)
+ *   MongoDB chi cho phep 1 text index / collection, nen text index cu (khac dinh nghia) se bi xoa truoc
+ * - TTL index cua carts tren updatedAt (cart.abandoned-ttl-days)
+ *   Doi thoi han -> index cu bi xoa va tao lai
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexInitializer {
+
+    public static final String BOOK_TEXT_INDEX = "books_text_idx";
+    public static final String CART_TTL_INDEX = "cart_updated_ttl_idx";
+
+    private final MongoTemplate mongoTemplate;
+    private final CartProperties cartProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        createBookTextIndex();
+        createCartTtlIndex();
+    }
+
+    private void createCartTtlIndex() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Cart.class);
+        Duration ttl = cartProperties.getAbandonedTtl();
+
+        for (IndexInfo index : indexOps.getIndexInfo()) {
+            if (CART_TTL_INDEX.equals(index.getName())
+                    && !index.getExpireAfter().equals(Optional.of(ttl))) {
+                log.info("Dropping cart TTL index {} (expireAfter changed to {} days)", index.getName(), cartProperties.getAbandonedTtlDays());
+                indexOps.dropIndex(index.getName());
+            }
+        }
+
+        indexOps.ensureIndex(new Index()
+                .on("updatedAt", Sort.Direction.ASC)
+                .named(CART_TTL_INDEX)
+                .expire(ttl));
+    }
+
+    private void createBookTextIndex() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Book.class);
+
+        for (IndexInfo index : indexOps.getIndexInfo()) {
+            boolean isTextIndex = index.getIndexFields().stream().anyMatch(IndexField::isText);
+            if (isTextIndex && !BOOK_TEXT_INDEX.equals(index.getName())) {
+                log.info("Dropping outdated text index {} on books", index.getName());
+                indexOps.dropIndex(index.getName());
+            }
+        }
+
+        // language "none": khong stemming / stop word (MongoDB khong ho tro tieng Viet)
+        indexOps.ensureIndex(TextIndexDefinition.builder()
+                .named(BOOK_TEXT_INDEX)
+                .onField("title", 10F)
+                .onField("author", 5F)
+                .onField("description", 1F)
+                .withDefaultLanguage("none")
+                .build());
+    }
+}
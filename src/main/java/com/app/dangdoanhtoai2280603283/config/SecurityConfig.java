@@ -58,7 +58,10 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/books/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/categories/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/books/**").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/books/lookup").permitAll()
                         .requestMatchers("/health").permitAll()
+                        // Gio hang khach (cookie, khong can dang nhap)
+                        .requestMatchers("/cart/guest", "/cart/guest/**").permitAll()
 
                         // Admin only - CRUD sach va danh muc
                         .requestMatchers(HttpMethod.POST, "/books/**").hasRole("ADMIN")
@@ -3,10 +3,16 @@ package com.app.dangdoanhtoai2280603283.controller;
 import com.app.dangdoanhtoai2280603283.dto.AdminOrderResponse;
 import com.app.dangdoanhtoai2280603283.dto.ApiResponse;
 import com.app.dangdoanhtoai2280603283.dto.PageResponse;
+import com.app.dangdoanhtoai2280603283.dto.RevenueReportResponse;
 import com.app.dangdoanhtoai2280603283.dto.RevenueResponse;
 import com.app.dangdoanhtoai2280603283.dto.UpdateOrderStatusRequest;
+import com.app.dangdoanhtoai2280603283.exception.BadRequestException;
 import com.app.dangdoanhtoai2280603283.model.Invoice;
+import com.app.dangdoanhtoai2280603283.model.RevenueGranularity;
+import com.app.dangdoanhtoai2280603283.service.CartSweeper;
+import com.app.dangdoanhtoai2280603283.service.CatalogCache;
 import com.app.dangdoanhtoai2280603283.service.InvoiceService;
+import com.app.dangdoanhtoai2280603283.service.RevenueRollupService;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -19,11 +25,16 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Controller quan ly don hang cho ADMIN
@@ -35,11 +46,18 @@ import java.util.List;
 public class AdminController {
 
     private final InvoiceService invoiceService;
+    private final RevenueRollupService revenueRollupService;
+    private final CatalogCache catalogCache;
+    private final CartSweeper cartSweeper;
+
+    // So dong CSV ghi truoc moi lan flush ra client
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
 
     /**
      * XEM DANH SACH DON HANG
      * GET /admin/orders
      * - Query params: status, fromDate, toDate, page, limit
+     * - Hoac cursor (rong o trang dau) + includeTotal de phan trang theo cursor
      */
     @GetMapping("/orders")
     public ResponseEntity<ApiResponse<PageResponse<List<AdminOrderResponse.InvoiceResponse>>>> getOrders(
@@ -47,7 +65,9 @@ public class AdminController {
             @RequestParam(required = false) String fromDate,
             @RequestParam(required = false) String toDate,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
 
         LocalDateTime startDate = null;
         LocalDateTime endDate = null;
@@ -59,6 +79,11 @@ public class AdminController {
             endDate = LocalDateTime.parse(toDate);
         }
 
+        if (cursor != null) {
+            return ResponseEntity.ok(ApiResponse.success(invoiceService.getAdminOrdersByCursor(
+                    status, startDate, endDate, cursor, limit, includeTotal)));
+        }
+
         Pageable pageable = PageRequest.of(page, limit, Sort.by("createdAt").descending());
         Page<AdminOrderResponse.InvoiceResponse> orderPage = invoiceService.getAdminOrders(
                 status, startDate, endDate, pageable);
@@ -120,35 +145,103 @@ public class AdminController {
             endDate = LocalDateTime.parse(toDate);
         }
 
-        List<AdminOrderResponse.InvoiceResponse> orders = invoiceService.getOrdersForExport(
-                status, startDate, endDate);
-
         response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
         response.setHeader("Content-Disposition", "attachment; filename=orders_export_"
                 + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv");
 
-        PrintWriter writer = response.getWriter();
+        BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
 
-        // CSV Header
-        writer.println("Order ID,Order Number,Username,Email,Total Amount,Status,Created At,Item Count");
+        // CSV Header - flush ngay de client nhan duoc byte dau tien
+        writer.write("Order ID,Order Number,Username,Email,Total Amount,Status,Created At,Item Count");
+        writer.newLine();
+        writer.flush();
 
-        // CSV Data
+        // CSV Data - doc tu cursor, ghi tung dong, flush dinh ky
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        for (AdminOrderResponse.InvoiceResponse order : orders) {
-            writer.println(
-                    order.getOrderId() + "," +
-                    order.getOrderNumber() + "," +
-                    order.getUsername() + "," +
-                    order.getEmail() + "," +
-                    order.getTotalAmount() + "," +
-                    order.getStatus() + "," +
-                    (order.getCreatedAt() != null ? order.getCreatedAt().format(formatter) : "") + "," +
-                    order.getItemCount()
-            );
+        try (Stream<AdminOrderResponse.InvoiceResponse> orders = invoiceService.streamOrdersForExport(
+                status, startDate, endDate)) {
+            int rowCount = 0;
+            Iterator<AdminOrderResponse.InvoiceResponse> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                AdminOrderResponse.InvoiceResponse order = iterator.next();
+                writer.write(String.join(",",
+                        csvField(order.getOrderId()),
+                        csvField(order.getOrderNumber()),
+                        csvField(order.getUsername()),
+                        csvField(order.getEmail()),
+                        csvField(order.getTotalAmount()),
+                        csvField(order.getStatus()),
+                        csvField(order.getCreatedAt() != null ? order.getCreatedAt().format(formatter) : ""),
+                        csvField(order.getItemCount())));
+                writer.newLine();
+
+                if (++rowCount % EXPORT_FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
         }
 
         writer.flush();
-        writer.close();
+    }
+
+    /**
+     * Escape 1 gia tri CSV (RFC 4180)
+     * Bao trong dau nhay kep neu co dau phay, dau nhay hoac xuong dong
+     */
+    private String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    /**
+     * MIGRATE ITEMS VAO TRONG INVOICE
+     * POST /admin/migrate-invoice-items
+     * - Gop collection items cu vao field items cua tung invoice
+     * - Co the chay lai nhieu lan, chi xu ly invoice chua migrate
+     */
+    @PostMapping("/migrate-invoice-items")
+    public ResponseEntity<ApiResponse<String>> migrateInvoiceItems() {
+        int migratedCount = invoiceService.migrateItemsIntoInvoices();
+        return ResponseEntity.ok(ApiResponse.success(
+                "Migrated " + migratedCount + " invoices successfully",
+                "Migrated " + migratedCount + " invoices"
+        ));
+    }
+
+    /**
+     * MIGRATE THONG TIN NGUOI MUA VAO INVOICE
+     * POST /admin/migrate-invoice-buyers
+     * - Luu username, email vao invoice va xoa @DBRef user cu
+     */
+    @PostMapping("/migrate-invoice-buyers")
+    public ResponseEntity<ApiResponse<String>> migrateInvoiceBuyers() {
+        int migratedCount = invoiceService.migrateInvoiceBuyers();
+        return ResponseEntity.ok(ApiResponse.success(
+                "Migrated " + migratedCount + " invoices successfully",
+                "Migrated " + migratedCount + " invoices"
+        ));
+    }
+
+    /**
+     * BACKFILL SO LUONG SAN PHAM CHO DON HANG CU
+     * POST /admin/backfill-invoice-counters
+     * - Tinh itemCount va totalQuantity cho invoice tao truoc khi co 2 field nay
+     */
+    @PostMapping("/backfill-invoice-counters")
+    public ResponseEntity<ApiResponse<String>> backfillInvoiceCounters() {
+        int updatedCount = invoiceService.backfillInvoiceCounters();
+        return ResponseEntity.ok(ApiResponse.success(
+                "Backfilled " + updatedCount + " invoices successfully",
+                "Backfilled " + updatedCount + " invoices"
+        ));
     }
 
     /**
@@ -162,4 +255,67 @@ public class AdminController {
         RevenueResponse revenue = invoiceService.getMonthlyRevenue(year);
         return ResponseEntity.ok(ApiResponse.success(revenue));
     }
+
+    /**
+     * THONG KE DOANH THU THEO NGAY/TUAN/THANG/NAM
+     * GET /admin/revenue
+     * - Query params: granularity (day|week|month|year), fromDate, toDate
+     * - Mac dinh: theo thang, tu dau nam hien tai den hien tai
+     */
+    @GetMapping("/revenue")
+    public ResponseEntity<ApiResponse<RevenueReportResponse>> getRevenueReport(
+            @RequestParam(defaultValue = "month") String granularity,
+            @RequestParam(required = false) String fromDate,
+            @RequestParam(required = false) String toDate) {
+
+        RevenueGranularity revenueGranularity;
+        try {
+            revenueGranularity = RevenueGranularity.valueOf(granularity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Granularity khong hop le. Chi chap nhan: day, week, month, year");
+        }
+
+        LocalDateTime endDate = toDate != null ? LocalDateTime.parse(toDate) : LocalDateTime.now();
+        LocalDateTime startDate = fromDate != null
+                ? LocalDateTime.parse(fromDate)
+                : LocalDateTime.of(endDate.getYear(), 1, 1, 0, 0);
+
+        RevenueReportResponse report = invoiceService.getRevenueReport(revenueGranularity, startDate, endDate);
+        return ResponseEntity.ok(ApiResponse.success(report));
+    }
+
+    /**
+     * TINH LAI BANG TONG HOP DOANH THU
+     * POST /admin/revenue/rebuild
+     * - Backfill lan dau hoac sua sai lech cua revenue_daily tu invoices
+     */
+    @PostMapping("/revenue/rebuild")
+    public ResponseEntity<ApiResponse<String>> rebuildRevenueRollup() {
+        int dayCount = revenueRollupService.rebuild();
+        return ResponseEntity.ok(ApiResponse.success(
+                "Rebuilt revenue rollup successfully",
+                "Rebuilt " + dayCount + " days"
+        ));
+    }
+
+    /**
+     * THONG KE CACHE CATALOG
+     * GET /admin/catalog-cache/stats
+     * - Kich thuoc, hit/miss, so lan load, so entry bi loai cua cache sach va danh muc
+     */
+    @GetMapping("/catalog-cache/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getCatalogCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(catalogCache.getStats()));
+    }
+
+    /**
+     * DON DEP GIO HANG
+     * POST /admin/carts/sweep
+     * - Xoa gio rong ngay lap tuc (binh thuong chay dinh ky theo cart.sweep-interval-ms)
+     * - Bao cao so gio da xoa, so gio bo quen dang cho TTL index xoa
+     */
+    @PostMapping("/carts/sweep")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> sweepCarts() {
+        return ResponseEntity.ok(ApiResponse.success(cartSweeper.sweep()));
+    }
 }
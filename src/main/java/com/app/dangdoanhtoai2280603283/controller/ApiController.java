@@ -1,9 +1,15 @@
 package com.app.dangdoanhtoai2280603283.controller;
 
 import com.app.dangdoanhtoai2280603283.dto.ApiResponse;
+import com.app.dangdoanhtoai2280603283.dto.BookLookupRequest;
+import com.app.dangdoanhtoai2280603283.dto.BookLookupResponse;
+import com.app.dangdoanhtoai2280603283.dto.BookSummary;
 import com.app.dangdoanhtoai2280603283.dto.PageResponse;
 import com.app.dangdoanhtoai2280603283.model.Book;
 import com.app.dangdoanhtoai2280603283.service.BookService;
+import com.app.dangdoanhtoai2280603283.service.CatalogVersion;
+import com.app.dangdoanhtoai2280603283.util.HttpCaching;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -12,12 +18,15 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
 /**
  * REST API Controller (BAI 8)
  * - GET /api/books: Lay danh sach sach
+ * - GET /api/books?ids=a,b,c: Lay nhieu sach theo ID
+ * - POST /api/books/lookup: Lay nhieu sach theo ID (danh sach dai)
  * - GET /api/books/:id: Lay chi tiet sach
  * - DELETE /api/books/:id: Xoa sach (ADMIN, can JWT Bearer Token)
  *
@@ -30,19 +39,33 @@ import java.util.List;
 public class ApiController {
 
     private final BookService bookService;
+    private final CatalogVersion catalogVersion;
 
     /**
      * GET /api/books
      * Lay danh sach sach (Public)
+     * Truyen cursor (rong o trang dau) de phan trang theo cursor thay vi page
+     * Ho tro If-None-Match / If-Modified-Since (phien ban catalog)
      */
     @GetMapping("/books")
-    public ResponseEntity<ApiResponse<PageResponse<List<Book>>>> getBooks(
+    public ResponseEntity<ApiResponse<PageResponse<List<BookSummary>>>> getBooks(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int limit) {
-        Pageable pageable = PageRequest.of(page, limit, Sort.by("createdAt").descending());
-        Page<Book> bookPage = bookService.getAllBooks(pageable);
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            WebRequest webRequest) {
+        if (HttpCaching.notModified(webRequest, catalogVersion.etag(), catalogVersion.lastModified())) {
+            return null;
+        }
+        if (cursor != null) {
+            return HttpCaching.revalidated(ApiResponse.success(
+                    bookService.getBooksByCursor(cursor, limit, Sort.Direction.DESC, includeTotal)));
+        }
 
-        PageResponse<List<Book>> pageResponse = PageResponse.<List<Book>>builder()
+        Pageable pageable = PageRequest.of(page, limit, BookService.catalogSort("createdAt", "desc"));
+        Page<BookSummary> bookPage = bookService.getAllBooks(pageable);
+
+        PageResponse<List<BookSummary>> pageResponse = PageResponse.<List<BookSummary>>builder()
                 .content(bookPage.getContent())
                 .page(page)
                 .limit(limit)
@@ -50,17 +73,45 @@ public class ApiController {
                 .totalPages(bookPage.getTotalPages())
                 .build();
 
-        return ResponseEntity.ok(ApiResponse.success(pageResponse));
+        return HttpCaching.revalidated(ApiResponse.success(pageResponse));
+    }
+
+    /**
+     * GET /api/books?ids=a,b,c
+     * Lay nhieu sach trong 1 request (Public)
+     * - 1 query $in cho cac sach chua co trong cache
+     * - Giu thu tu ID, ID khong ton tai tra ve trong missingIds
+     */
+    @GetMapping(value = "/books", params = "ids")
+    public ResponseEntity<ApiResponse<BookLookupResponse>> getBooksByIds(@RequestParam List<String> ids) {
+        return ResponseEntity.ok(ApiResponse.success(bookService.lookupBooks(ids)));
+    }
+
+    /**
+     * POST /api/books/lookup
+     * Giong GET /api/books?ids= nhung nhan danh sach ID trong body (Public)
+     * Body: { "ids": ["a", "b", "c"] }
+     */
+    @PostMapping("/books/lookup")
+    public ResponseEntity<ApiResponse<BookLookupResponse>> lookupBooks(
+            @Valid @RequestBody BookLookupRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(bookService.lookupBooks(request.getIds())));
     }
 
     /**
      * GET /api/books/:id
      * Lay chi tiet sach (Public)
+     * Ho tro If-None-Match (version + updatedAt cua sach) / If-Modified-Since (updatedAt)
      */
     @GetMapping("/books/{id}")
-    public ResponseEntity<ApiResponse<Book>> getBookById(@PathVariable String id) {
+    public ResponseEntity<ApiResponse<Book>> getBookById(@PathVariable String id, WebRequest webRequest) {
+        BookService.BookStamp stamp = bookService.getBookStamp(id);
+        String etag = HttpCaching.entityEtag("book", id, stamp.version(), stamp.lastModified());
+        if (HttpCaching.notModified(webRequest, etag, stamp.lastModified())) {
+            return null;
+        }
         Book book = bookService.getBookById(id);
-        return ResponseEntity.ok(ApiResponse.success(book));
+        return HttpCaching.revalidated(ApiResponse.success(book));
     }
 
     /**
@@ -90,4 +141,19 @@ public class ApiController {
                 "Migrated " + migratedCount + " books"
         ));
     }
+
+    /**
+     * POST /api/migrate-book-search-tokens
+     * Backfill searchTokens (title + author khong dau) cho sach cu
+     * Admin only
+     */
+    @PostMapping("/migrate-book-search-tokens")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> migrateBookSearchTokens() {
+        int updatedCount = bookService.backfillSearchTokens();
+        return ResponseEntity.ok(ApiResponse.success(
+                "Backfilled search tokens for " + updatedCount + " books",
+                "Updated " + updatedCount + " books"
+        ));
+    }
 }
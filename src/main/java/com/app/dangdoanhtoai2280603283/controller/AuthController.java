@@ -1,8 +1,14 @@
 package com.app.dangdoanhtoai2280603283.controller;
 
 import com.app.dangdoanhtoai2280603283.dto.*;
+import com.app.dangdoanhtoai2280603283.model.CartItem;
+import com.app.dangdoanhtoai2280603283.model.Role;
 import com.app.dangdoanhtoai2280603283.model.User;
+import com.app.dangdoanhtoai2280603283.security.GuestCartCookie;
 import com.app.dangdoanhtoai2280603283.service.AuthService;
+import com.app.dangdoanhtoai2280603283.service.CartService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -10,6 +16,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * Controller xu ly Authentication (BAI 6)
  * - POST /auth/register: Dang ky
@@ -22,6 +30,8 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final AuthService authService;
+    private final CartService cartService;
+    private final GuestCartCookie guestCartCookie;
 
     /**
      * DANG KY TAI KHOAN
@@ -45,14 +55,29 @@ public class AuthController {
      * 
      * Request Body: { username, password }
      * Response: { success, message, data: { user, token } }
+     * Co cookie gio hang khach -> gop vao gio cua user roi xoa cookie
      */
     @PostMapping("/login")
     public ResponseEntity<ApiResponse<AuthResponse>> login(
-            @Valid @RequestBody LoginRequest request) {
+            @Valid @RequestBody LoginRequest request,
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) {
         AuthResponse response = authService.login(request);
+        mergeGuestCart(response, httpRequest, httpResponse);
         return ResponseEntity.ok(ApiResponse.success("Dang nhap thanh cong", response));
     }
 
+    private void mergeGuestCart(AuthResponse auth, HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        // Chi USER co gio hang
+        if (auth.getRole() != Role.USER) {
+            return;
+        }
+        List<CartItem> guestItems = guestCartCookie.read(httpRequest);
+        if (!guestItems.isEmpty() && cartService.mergeGuestCart(auth.getId(), guestItems)) {
+            guestCartCookie.clear(httpResponse);
+        }
+    }
+
     /**
      * LAY THONG TIN USER HIEN TAI
      * GET /auth/me
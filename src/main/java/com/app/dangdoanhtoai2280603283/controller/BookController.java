@@ -1,10 +1,16 @@
 package com.app.dangdoanhtoai2280603283.controller;
 
 import com.app.dangdoanhtoai2280603283.dto.ApiResponse;
+import com.app.dangdoanhtoai2280603283.dto.BookSummary;
+import com.app.dangdoanhtoai2280603283.dto.BrowseResponse;
 import com.app.dangdoanhtoai2280603283.dto.BookRequest;
 import com.app.dangdoanhtoai2280603283.dto.PageResponse;
+import com.app.dangdoanhtoai2280603283.dto.SuggestResponse;
+import com.app.dangdoanhtoai2280603283.exception.BadRequestException;
 import com.app.dangdoanhtoai2280603283.model.Book;
 import com.app.dangdoanhtoai2280603283.service.BookService;
+import com.app.dangdoanhtoai2280603283.service.CatalogVersion;
+import com.app.dangdoanhtoai2280603283.util.HttpCaching;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -15,6 +21,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -24,6 +31,8 @@ import java.util.Map;
  * Controller xu ly Book (BAI 3)
  * - GET /books: Lay tat ca sach (Public)
  * - GET /books/search: Tim kiem sach (Public)
+ * - GET /books/suggest: Goi y khi go (Public)
+ * - GET /books/browse: Duyet catalog co bo loc + facet (Public)
  * - GET /books/filter: Loc sach theo gia (Public)
  * - GET /books/:id: Lay chi tiet sach (Public)
  * - POST /books: Them sach (ADMIN)
@@ -36,26 +45,49 @@ import java.util.Map;
 public class BookController {
 
     private final BookService bookService;
+    private final CatalogVersion catalogVersion;
 
     /**
      * LAY TAT CA SACH (phan trang)
      * GET /books?page=0&limit=10&sortBy=createdAt&order=desc
+     * sortBy: createdAt | price | title (BookService.CATALOG_SORT_FIELDS), truong khac -> 400
+     *
+     * Che do cursor (cho crawler / infinite scroll): GET /books?cursor=&limit=10
+     * - Trang dau: cursor rong, cac trang sau: cursor = nextCursor cua trang truoc
+     * - Chi ho tro sortBy=createdAt; total chi tra ve khi includeTotal=true
+     *
+     * ETag / Last-Modified theo phien ban catalog: catalog khong doi -> 304 khong doc DB
      */
     @GetMapping
-    public ResponseEntity<ApiResponse<PageResponse<List<Book>>>> getAllBooks(
+    public ResponseEntity<ApiResponse<PageResponse<List<BookSummary>>>> getAllBooks(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int limit,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String order) {
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            WebRequest webRequest) {
+
+        if (HttpCaching.notModified(webRequest, catalogVersion.etag(), catalogVersion.lastModified())) {
+            return null;
+        }
+
+        if (cursor != null) {
+            if (!"createdAt".equals(sortBy)) {
+                throw new BadRequestException("Phan trang theo cursor chi ho tro sortBy=createdAt");
+            }
+            Sort.Direction direction = order.equalsIgnoreCase("asc")
+                    ? Sort.Direction.ASC
+                    : Sort.Direction.DESC;
+            return HttpCaching.revalidated(ApiResponse.success(
+                    bookService.getBooksByCursor(cursor, limit, direction, includeTotal)));
+        }
         
-        Sort sort = order.equalsIgnoreCase("asc") 
-                ? Sort.by(sortBy).ascending() 
-                : Sort.by(sortBy).descending();
-        Pageable pageable = PageRequest.of(page, limit, sort);
+        Pageable pageable = PageRequest.of(page, limit, BookService.catalogSort(sortBy, order));
         
-        Page<Book> bookPage = bookService.getAllBooks(pageable);
+        Page<BookSummary> bookPage = bookService.getAllBooks(pageable);
         
-        PageResponse<List<Book>> pageResponse = PageResponse.<List<Book>>builder()
+        PageResponse<List<BookSummary>> pageResponse = PageResponse.<List<BookSummary>>builder()
                 .content(bookPage.getContent())
                 .page(page)
                 .limit(limit)
@@ -63,42 +95,97 @@ public class BookController {
                 .totalPages(bookPage.getTotalPages())
                 .build();
         
-        return ResponseEntity.ok(ApiResponse.success(pageResponse));
+        return HttpCaching.revalidated(ApiResponse.success(pageResponse));
     }
 
     /**
-     * TIM KIEM SACH THEO TITLE (BAI 3)
-     * GET /books/search?keyword=javascript
+     * TIM KIEM SACH (BAI 3)
+     * GET /books/search?keyword=javascript&page=0&limit=20
      * 
-     * Tim kiem khong phan biet hoa thuong (regex)
+     * Tim kiem full-text tren title, author, description (text index), sap xep theo do lien quan
+     * Khong co ket qua: tim theo tien to khong dau tren title + author, sap xep theo title
+     * Toi da BookService.MAX_SEARCH_RESULTS ket qua
+     * truncated = true: so sach khop cham gioi han, nen go them tu khoa
      */
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<Map<String, Object>>> searchBooks(
-            @RequestParam String keyword) {
-        List<Book> books = bookService.searchBooks(keyword);
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int limit) {
+        Page<BookSummary> bookPage = bookService.searchBooks(keyword, page, limit);
         
         Map<String, Object> data = new HashMap<>();
         data.put("keyword", keyword);
-        data.put("count", books.size());
-        data.put("books", books);
+        data.put("count", bookPage.getNumberOfElements());
+        data.put("total", bookPage.getTotalElements());
+        data.put("page", bookPage.getNumber());
+        data.put("limit", bookPage.getSize());
+        data.put("totalPages", bookPage.getTotalPages());
+        data.put("truncated", bookPage.getTotalElements() >= BookService.MAX_SEARCH_RESULTS);
+        data.put("books", bookPage.getContent());
         
         return ResponseEntity.ok(ApiResponse.success(data));
     }
 
+    /**
+     * GOI Y TIM KIEM (search-as-you-type)
+     * GET /books/suggest?q=lap tr&limit=8
+     *
+     * Tra ve top title va tac gia khop tien to (khong dau, chap nhan sai 1 ky tu)
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<SuggestResponse>> suggestBooks(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(bookService.suggestBooks(q, limit)));
+    }
+
+    /**
+     * DUYET CATALOG CO BO LOC
+     * GET /books/browse?keyword=&categoryId=&minPrice=&maxPrice=&sortBy=price&order=asc&page=0&limit=12
+     *
+     * Tra ve trang ket qua + so sach theo danh muc + so sach theo khoang gia
+     * trong 1 round trip (1 aggregation $facet; them 1 aggregation dem danh muc khi co categoryId),
+     * thay cho /categories, /books/filter va dem tung danh muc
+     */
+    @GetMapping("/browse")
+    public ResponseEntity<ApiResponse<BrowseResponse>> browseBooks(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String categoryId,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int limit) {
+        BrowseResponse response = bookService.browseBooks(
+                keyword, categoryId, minPrice, maxPrice, sortBy, order, page, limit);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
     /**
      * LOC SACH THEO GIA (BAI 3)
      * GET /books/filter?price=100000&limit=5
      * 
-     * Lay toi da K sach co gia <= price
+     * Lay toi da K sach co gia <= price (re nhat truoc)
+     * Tuy chon: minPrice (gia >= minPrice), categoryId (chi sach thuoc danh muc)
      */
     @GetMapping("/filter")
     public ResponseEntity<ApiResponse<Map<String, Object>>> filterBooks(
             @RequestParam Double price,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) String categoryId,
             @RequestParam(defaultValue = "10") int limit) {
-        List<Book> books = bookService.filterBooksByPrice(price, limit);
+        List<BookSummary> books = bookService.filterBooksByPrice(minPrice, price, categoryId, limit);
         
         Map<String, Object> data = new HashMap<>();
         data.put("maxPrice", price);
+        if (minPrice != null) {
+            data.put("minPrice", minPrice);
+        }
+        if (categoryId != null) {
+            data.put("categoryId", categoryId);
+        }
         data.put("limit", limit);
         data.put("count", books.size());
         data.put("books", books);
@@ -109,11 +196,17 @@ public class BookController {
     /**
      * LAY CHI TIET SACH
      * GET /books/:id
+     * ETag tu id + version + updatedAt: chi doc cac field nay, khong doi -> 304 khong doc ca document
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Book>> getBookById(@PathVariable String id) {
+    public ResponseEntity<ApiResponse<Book>> getBookById(@PathVariable String id, WebRequest webRequest) {
+        BookService.BookStamp stamp = bookService.getBookStamp(id);
+        String etag = HttpCaching.entityEtag("book", id, stamp.version(), stamp.lastModified());
+        if (HttpCaching.notModified(webRequest, etag, stamp.lastModified())) {
+            return null;
+        }
         Book book = bookService.getBookById(id);
-        return ResponseEntity.ok(ApiResponse.success(book));
+        return HttpCaching.revalidated(ApiResponse.success(book));
     }
 
     /**
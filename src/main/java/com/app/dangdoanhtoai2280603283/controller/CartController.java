@@ -1,6 +1,7 @@
 package com.app.dangdoanhtoai2280603283.controller;
 
 import com.app.dangdoanhtoai2280603283.dto.ApiResponse;
+import com.app.dangdoanhtoai2280603283.dto.CartBatchRequest;
 import com.app.dangdoanhtoai2280603283.dto.CartRequest;
 import com.app.dangdoanhtoai2280603283.dto.CartResponse;
 import com.app.dangdoanhtoai2280603283.model.User;
@@ -18,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
  * - POST /cart/add: Them sach vao gio
  * - PUT /cart/update: Cap nhat so luong
  * - DELETE /cart/remove: Xoa sach khoi gio
+ * - POST /cart/batch: Nhieu thao tac add/update/remove trong 1 request
  * - DELETE /cart/clear: Xoa toan bo gio
  *
  * CHI DUOC PHEP CHO USER (KHONG PHAI ADMIN)
@@ -93,6 +95,23 @@ public class CartController {
         return ResponseEntity.ok(ApiResponse.success("Da xoa khoi gio hang", cart));
     }
 
+    /**
+     * CAP NHAT GIO HANG THEO LO
+     * POST /cart/batch
+     *
+     * Body: { operations: [ { action: add|update|remove, bookId, quantity? }, ... ] }
+     * Cac thao tac duoc ap dung theo thu tu, ghi gio 1 lan; 1 thao tac loi -> ca lo bi tu choi
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ApiResponse<CartResponse>> applyBatch(
+            Authentication authentication,
+            @Valid @RequestBody CartBatchRequest request) {
+        User user = (User) authentication.getPrincipal();
+        CartResponse cart = cartService.applyBatch(user.getId(), request.getOperations());
+        return ResponseEntity.ok(ApiResponse.success("Cap nhat gio hang thanh cong", cart));
+    }
+
     /**
      * XOA TOAN BO GIO HANG
      * DELETE /cart/clear
@@ -4,7 +4,9 @@ import com.app.dangdoanhtoai2280603283.dto.ApiResponse;
 import com.app.dangdoanhtoai2280603283.dto.CategoryRequest;
 import com.app.dangdoanhtoai2280603283.dto.PageResponse;
 import com.app.dangdoanhtoai2280603283.model.Category;
+import com.app.dangdoanhtoai2280603283.service.CatalogVersion;
 import com.app.dangdoanhtoai2280603283.service.CategoryService;
+import com.app.dangdoanhtoai2280603283.util.HttpCaching;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -14,6 +16,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -31,15 +34,21 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final CatalogVersion catalogVersion;
 
     /**
      * LAY TAT CA DANH MUC
      * GET /categories
+     * Ho tro If-None-Match / If-Modified-Since (phien ban catalog)
      */
     @GetMapping
     public ResponseEntity<ApiResponse<PageResponse<List<Category>>>> getAllCategories(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            WebRequest webRequest) {
+        if (HttpCaching.notModified(webRequest, catalogVersion.etag(), catalogVersion.lastModified())) {
+            return null;
+        }
         Pageable pageable = PageRequest.of(page, limit);
         Page<Category> categoryPage = categoryService.getAllCategories(pageable);
         
@@ -51,7 +60,7 @@ public class CategoryController {
                 .totalPages(categoryPage.getTotalPages())
                 .build();
         
-        return ResponseEntity.ok(ApiResponse.success(pageResponse));
+        return HttpCaching.revalidated(ApiResponse.success(pageResponse));
     }
 
     /**
@@ -0,0 +1,130 @@
+package com.app.dangdoanhtoai2280603283.controller;
+
+import com.app.dangdoanhtoai2280603283.dto.ApiResponse;
+import com.app.dangdoanhtoai2280603283.dto.CartBatchRequest;
+import com.app.dangdoanhtoai2280603283.dto.CartRequest;
+import com.app.dangdoanhtoai2280603283.dto.CartResponse;
+import com.app.dangdoanhtoai2280603283.model.CartItem;
+import com.app.dangdoanhtoai2280603283.security.GuestCartCookie;
+import com.app.dangdoanhtoai2280603283.service.CartService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controller gio hang cua khach (chua dang nhap)
+ * - GET /cart/guest: Lay gio hang
+ * - POST /cart/guest/add: Them sach vao gio
+ * - PUT /cart/guest/update: Cap nhat so luong
+ * - DELETE /cart/guest/remove: Xoa sach khoi gio
+ * - POST /cart/guest/batch: Nhieu thao tac trong 1 request
+ * - DELETE /cart/guest/clear: Xoa toan bo gio
+ *
+ * Gio luu trong cookie ky HMAC (GuestCartCookie), khong ghi MongoDB
+ * Khi dang nhap (/auth/login, Google OAuth2) gio khach duoc gop vao gio cua user
+ */
+@RestController
+@RequestMapping("/cart/guest")
+@RequiredArgsConstructor
+public class GuestCartController {
+
+    private final CartService cartService;
+    private final GuestCartCookie guestCartCookie;
+
+    /**
+     * LAY GIO HANG KHACH
+     * GET /cart/guest
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<CartResponse>> getCart(HttpServletRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(cartService.getGuestCart(guestCartCookie.read(request))));
+    }
+
+    /**
+     * THEM SACH VAO GIO HANG KHACH
+     * POST /cart/guest/add
+     *
+     * Body: { bookId, quantity? }
+     */
+    @PostMapping("/add")
+    public ResponseEntity<ApiResponse<CartResponse>> addToCart(
+            @Valid @RequestBody CartRequest body,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        CartResponse cart = apply(CartBatchRequest.ADD, body.getBookId(), body.getQuantity(), request, response);
+        return ResponseEntity.ok(ApiResponse.success("Da them vao gio hang", cart));
+    }
+
+    /**
+     * CAP NHAT SO LUONG SACH
+     * PUT /cart/guest/update
+     *
+     * Body: { bookId, quantity }
+     */
+    @PutMapping("/update")
+    public ResponseEntity<ApiResponse<CartResponse>> updateCartItem(
+            @Valid @RequestBody CartRequest body,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        CartResponse cart = apply(CartBatchRequest.UPDATE, body.getBookId(), body.getQuantity(), request, response);
+        return ResponseEntity.ok(ApiResponse.success("Cap nhat thanh cong", cart));
+    }
+
+    /**
+     * XOA SACH KHOI GIO HANG KHACH
+     * DELETE /cart/guest/remove
+     *
+     * Body: { bookId }
+     */
+    @DeleteMapping("/remove")
+    public ResponseEntity<ApiResponse<CartResponse>> removeFromCart(
+            @RequestBody CartRequest body,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        CartResponse cart = apply(CartBatchRequest.REMOVE, body.getBookId(), 0, request, response);
+        return ResponseEntity.ok(ApiResponse.success("Da xoa khoi gio hang", cart));
+    }
+
+    /**
+     * CAP NHAT GIO HANG KHACH THEO LO
+     * POST /cart/guest/batch
+     *
+     * Body: { operations: [ { action: add|update|remove, bookId, quantity? }, ... ] }
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<CartResponse>> applyBatch(
+            @Valid @RequestBody CartBatchRequest body,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        List<CartItem> items = cartService.applyGuestOperations(guestCartCookie.read(request), body.getOperations());
+        guestCartCookie.write(response, items);
+        return ResponseEntity.ok(ApiResponse.success("Cap nhat gio hang thanh cong", cartService.getGuestCart(items)));
+    }
+
+    /**
+     * XOA TOAN BO GIO HANG KHACH
+     * DELETE /cart/guest/clear
+     */
+    @DeleteMapping("/clear")
+    public ResponseEntity<ApiResponse<Void>> clearCart(HttpServletResponse response) {
+        guestCartCookie.clear(response);
+        return ResponseEntity.ok(ApiResponse.success("Da xoa toan bo gio hang", null));
+    }
+
+    private CartResponse apply(String action, String bookId, Integer quantity,
+                               HttpServletRequest request, HttpServletResponse response) {
+        CartBatchRequest.Operation operation = CartBatchRequest.Operation.builder()
+                .action(action)
+                .bookId(bookId)
+                .quantity(quantity)
+                .build();
+        List<CartItem> items = cartService.applyGuestOperations(guestCartCookie.read(request), List.of(operation));
+        guestCartCookie.write(response, items);
+        return cartService.getGuestCart(items);
+    }
+}
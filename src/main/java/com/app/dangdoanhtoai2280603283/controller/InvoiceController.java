@@ -5,7 +5,7 @@ import com.app.dangdoanhtoai2280603283.dto.CheckoutResponse;
 import com.app.dangdoanhtoai2280603283.dto.OrderHistoryResponse;
 import com.app.dangdoanhtoai2280603283.dto.PageResponse;
 import com.app.dangdoanhtoai2280603283.model.Invoice;
-import com.app.dangdoanhtoai2280603283.model.Item;
+import com.app.dangdoanhtoai2280603283.model.InvoiceItem;
 import com.app.dangdoanhtoai2280603283.model.User;
 import com.app.dangdoanhtoai2280603283.service.InvoiceService;
 import lombok.RequiredArgsConstructor;
@@ -54,7 +54,7 @@ public class InvoiceController {
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<ApiResponse<CheckoutResponse>> checkout(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        CheckoutResponse response = invoiceService.checkout(user.getId());
+        CheckoutResponse response = invoiceService.checkout(user);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(ApiResponse.success("Thanh toan thanh cong", response));
@@ -63,6 +63,7 @@ public class InvoiceController {
     /**
      * XEM LICH SU DON HANG CUA USER
      * GET /orders/history
+     * GET /orders/history?cursor=&limit=10 (phan trang theo cursor, total khi includeTotal=true)
      *
      * Chuyen muc:
      * - Chao USER co the xem don hang cua chinh minh
@@ -74,9 +75,13 @@ public class InvoiceController {
     public ResponseEntity<ApiResponse<OrderHistoryResponse>> getOrderHistory(
             Authentication authentication,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         User user = (User) authentication.getPrincipal();
-        OrderHistoryResponse response = invoiceService.getOrderHistory(user.getId(), page, limit);
+        OrderHistoryResponse response = cursor != null
+                ? invoiceService.getOrderHistoryByCursor(user.getId(), cursor, limit, includeTotal)
+                : invoiceService.getOrderHistory(user.getId(), page, limit);
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
@@ -117,13 +122,20 @@ public class InvoiceController {
     /**
      * XEM LICH SU HOA DON CUA USER
      * GET /invoices
+     * GET /invoices?cursor=&limit=10 (phan trang theo cursor)
      */
     @GetMapping("/invoices")
     public ResponseEntity<ApiResponse<PageResponse<List<Invoice>>>> getInvoices(
             Authentication authentication,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         User user = (User) authentication.getPrincipal();
+        if (cursor != null) {
+            return ResponseEntity.ok(ApiResponse.success(
+                    invoiceService.getInvoicesByUserCursor(user.getId(), cursor, limit, includeTotal)));
+        }
         Pageable pageable = PageRequest.of(page, limit, Sort.by("createdAt").descending());
         
         Page<Invoice> invoicePage = invoiceService.getInvoicesByUser(user.getId(), pageable);
@@ -175,7 +187,7 @@ public class InvoiceController {
         boolean isAdmin = user.getRole().name().equals("ADMIN");
         
         Invoice invoice = invoiceService.getInvoiceById(id, user.getId(), isAdmin);
-        List<Item> items = invoiceService.getInvoiceItems(id);
+        List<InvoiceItem> items = invoiceService.getInvoiceLineItems(invoice);
         
         Map<String, Object> data = new HashMap<>();
         data.put("invoice", invoice);
@@ -21,6 +21,7 @@ public class AdminOrderResponse {
     private LocalDateTime createdAt;
     private Double totalAmount;
     private String status;
+    // null: invoice cu chua duoc backfill (InvoiceService.backfillInvoiceCountersOnStartup)
     private Integer itemCount;
 
     public static AdminOrderResponse fromInvoice(InvoiceResponse invoice) {
@@ -48,6 +49,7 @@ public class AdminOrderResponse {
         private LocalDateTime createdAt;
         private Double totalAmount;
         private String status;
+        // null: invoice cu chua duoc backfill (InvoiceService.backfillInvoiceCountersOnStartup)
         private Integer itemCount;
     }
 
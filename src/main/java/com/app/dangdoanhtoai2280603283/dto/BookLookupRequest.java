@@ -0,0 +1,22 @@
+package com.app.dangdoanhtoai2280603283.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO cho multi-get sach (POST /api/books/lookup)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupRequest {
+
+    @NotEmpty(message = "Danh sach ID khong duoc de trong")
+    private List<String> ids;
+}
@@ -0,0 +1,24 @@
+package com.app.dangdoanhtoai2280603283.dto;
+
+import com.app.dangdoanhtoai2280603283.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO cho ket qua multi-get sach
+ * - books: theo dung thu tu ID trong request
+ * - missingIds: cac ID khong ton tai
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupResponse {
+
+    private List<Book> books;
+    private List<String> missingIds;
+}
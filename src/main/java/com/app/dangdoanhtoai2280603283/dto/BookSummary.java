@@ -0,0 +1,44 @@
+package com.app.dangdoanhtoai2280603283.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mongodb.DBRef;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO rut gon cua Book cho cac API danh sach
+ * - Doc tu collection books bang projection (khong co description)
+ * - Chi tiet day du cua sach: GET /books/:id
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSummary {
+
+    /**
+     * Cac field duoc doc tu MongoDB (projection)
+     */
+    public static final String[] FIELDS = {
+            "title", "author", "price", "categoryId", "categoryName", "category", "createdAt"
+    };
+
+    private String id;
+    private String title;
+    private String author;
+    private Double price;
+    private String categoryId;
+    private String categoryName;
+
+    // Dung cho cursor pagination
+    @JsonIgnore
+    private LocalDateTime createdAt;
+
+    // Du lieu cu: tham chieu @DBRef category, doc nguyen dang (khong resolve)
+    @JsonIgnore
+    private DBRef category;
+}
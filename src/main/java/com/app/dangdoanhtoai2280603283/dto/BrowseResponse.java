@@ -0,0 +1,52 @@
+package com.app.dangdoanhtoai2280603283.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO cho trang duyet catalog co bo loc (GET /books/browse)
+ * - books: trang ket qua
+ * - categories: so sach theo danh muc (bo qua bo loc categoryId, gom ca sach cu @DBRef)
+ * - priceBuckets: so sach theo khoang gia
+ * books / priceBuckets tinh tren cung bo loc, trong 1 aggregation $facet
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BrowseResponse {
+
+    private List<BookSummary> books;
+    private long total;
+    private int page;
+    private int limit;
+    private int totalPages;
+    private List<CategoryFacet> categories;
+    private List<PriceBucket> priceBuckets;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryFacet {
+        private String categoryId;
+        private String categoryName;
+        private long count;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceBucket {
+        // Gia tu (bao gom)
+        private Double minPrice;
+        // Gia den (khong bao gom), null: khong gioi han
+        private Double maxPrice;
+        private long count;
+    }
+}
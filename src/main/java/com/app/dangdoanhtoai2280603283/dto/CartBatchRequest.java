@@ -0,0 +1,55 @@
+package com.app.dangdoanhtoai2280603283.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO cho POST /cart/batch
+ * Danh sach thao tac add / update / remove, duoc ap dung dung thu tu gui len
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchRequest {
+
+    public static final String ADD = "add";
+    public static final String UPDATE = "update";
+    public static final String REMOVE = "remove";
+    // Chi dung noi bo khi gop gio khach (CartService.mergeGuestCart), client khong gui duoc (@Pattern)
+    public static final String MERGE = "merge";
+
+    @NotEmpty(message = "Danh sach thao tac khong duoc de trong")
+    @Size(max = 100, message = "Toi da 100 thao tac moi request")
+    @Valid
+    private List<Operation> operations;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Operation {
+
+        @NotBlank(message = "Thao tac khong duoc de trong")
+        @Pattern(regexp = "add|update|remove", message = "Thao tac phai la add, update hoac remove")
+        private String action;
+
+        @NotBlank(message = "Book ID khong duoc de trong")
+        private String bookId;
+
+        // add: so luong them vao; update: so luong moi (0 = xoa dong); remove: bo qua
+        @Min(value = 0, message = "So luong khong duoc am")
+        @Builder.Default
+        private Integer quantity = 1;
+    }
+}
@@ -1,6 +1,5 @@
 package com.app.dangdoanhtoai2280603283.dto;
 
-import com.app.dangdoanhtoai2280603283.model.Book;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -29,7 +28,9 @@ public class CartResponse {
     @AllArgsConstructor
     public static class CartItemResponse {
         private String bookId;
-        private Book book;
+        private String title;
+        private String author;
+        private Double price;
         private Integer quantity;
         private Double subtotal;
     }
@@ -1,6 +1,7 @@
 package com.app.dangdoanhtoai2280603283.dto;
 
 import com.app.dangdoanhtoai2280603283.model.Invoice;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,11 +14,13 @@ import java.util.List;
  * DTO cho Order History response
  * - GET /orders/history: Lấy danh sách đơn hàng của user
  * - GET /orders/:id: Lấy chi tiết đơn hàng
+ * Che do cursor: co nextCursor/hasNext, total chi co khi client yeu cau
  */
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class OrderHistoryResponse {
 
     private List<OrderSummary> orders;
@@ -25,6 +28,8 @@ public class OrderHistoryResponse {
     private Integer page;
     private Integer limit;
     private Integer totalPages;
+    private String nextCursor;
+    private Boolean hasNext;
 
     @Data
     @Builder
@@ -36,6 +41,7 @@ public class OrderHistoryResponse {
         private LocalDateTime createdAt;
         private Double totalAmount;
         private String status;
+        // null: invoice cu chua duoc backfill (InvoiceService.backfillInvoiceCountersOnStartup)
         private Integer itemCount;
     }
 
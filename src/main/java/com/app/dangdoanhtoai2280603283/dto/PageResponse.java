@@ -1,5 +1,6 @@
 package com.app.dangdoanhtoai2280603283.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,16 +8,21 @@ import lombok.NoArgsConstructor;
 
 /**
  * DTO cho Pagination
+ * - Phan trang theo so trang: page, limit, total, totalPages
+ * - Phan trang theo cursor: limit, nextCursor, hasNext (total chi co khi client yeu cau includeTotal)
  */
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PageResponse<T> {
     
     private T content;
-    private int page;
-    private int limit;
-    private long total;
-    private int totalPages;
+    private Integer page;
+    private Integer limit;
+    private Long total;
+    private Integer totalPages;
+    private String nextCursor;
+    private Boolean hasNext;
 }
@@ -0,0 +1,38 @@
+package com.app.dangdoanhtoai2280603283.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO cho thong ke doanh thu theo ngay/tuan/thang/nam
+ * - GET /admin/revenue
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueReportResponse {
+
+    private String granularity;
+    private LocalDateTime fromDate;
+    private LocalDateTime toDate;
+    private List<RevenueBucket> buckets;
+    private Double totalRevenue;
+    private Integer totalOrders;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RevenueBucket {
+        // Vd: 2024-03-15 (DAY), 2024-W11 (WEEK), 2024-03 (MONTH), 2024 (YEAR)
+        private String period;
+        private Double revenue;
+        private Integer orderCount;
+    }
+}
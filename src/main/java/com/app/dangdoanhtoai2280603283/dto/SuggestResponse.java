@@ -0,0 +1,33 @@
+package com.app.dangdoanhtoai2280603283.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO cho goi y tim kiem (search-as-you-type)
+ * - GET /books/suggest?q=
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestResponse {
+
+    private String query;
+    private List<TitleSuggestion> titles;
+    private List<String> authors;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TitleSuggestion {
+        private String bookId;
+        private String title;
+        private String author;
+    }
+}
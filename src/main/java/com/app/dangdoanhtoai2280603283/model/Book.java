@@ -8,9 +8,11 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.index.TextIndexed;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -18,18 +20,26 @@ import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Book Entity - Thong tin sach
  * Hỗ trợ cả 2 format:
  * - Dữ liệu cũ: @DBRef Category object
  * - Dữ liệu mới: categoryId và categoryName
+ * Text index (title, author, description) duoc tao trong MongoIndexInitializer
  */
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "books")
+@CompoundIndexes({
+        @CompoundIndex(name = "created_id_idx", def = "{ 'createdAt': -1, '_id': -1 }"),
+        @CompoundIndex(name = "category_price_idx", def = "{ 'categoryId': 1, 'price': 1 }"),
+        @CompoundIndex(name = "price_id_idx", def = "{ 'price': 1, '_id': 1 }"),
+        @CompoundIndex(name = "title_id_idx", def = "{ 'title': 1, '_id': 1 }")
+})
 public class Book {
 
     @Id
@@ -37,12 +47,10 @@ public class Book {
 
     @NotBlank(message = "Tieu de sach khong duoc de trong")
     @Size(max = 200, message = "Tieu de khong qua 200 ky tu")
-    @TextIndexed
     private String title;
 
     @NotBlank(message = "Tac gia khong duoc de trong")
     @Size(max = 100, message = "Ten tac gia khong qua 100 ky tu")
-    @TextIndexed
     private String author;
 
     @NotNull(message = "Gia sach khong duoc de trong")
@@ -63,9 +71,20 @@ public class Book {
     @Size(max = 2000, message = "Mo ta khong qua 2000 ky tu")
     private String description;
 
+    // Cac tu cua title + author da bo dau, chu thuong (TextNormalizer)
+    // BookService cap nhat moi lan ghi, dung cho tim kiem khong dau
+    @Indexed(name = "search_tokens_idx")
+    @JsonIgnore
+    private List<String> searchTokens;
+
     @CreatedDate
     private LocalDateTime createdAt;
 
     @LastModifiedDate
     private LocalDateTime updatedAt;
+
+    // Tang 1 o moi lan BookService ghi sach (khong dung @Version: sach cu chua co field nay)
+    // ETag cua GET /books/:id = id + version + updatedAt
+    @JsonIgnore
+    private Long version;
 }
@@ -33,54 +33,10 @@ public class Cart {
     @Builder.Default
     private List<CartItem> items = new ArrayList<>();
 
+    // TTL index cart_updated_ttl_idx (MongoIndexInitializer): gio khong thay doi qua cart.abandoned-ttl-days bi xoa
     @LastModifiedDate
     private LocalDateTime updatedAt;
 
-    /**
-     * Them sach vao gio hang
-     */
-    public void addItem(String bookId, int quantity) {
-        // Tim xem sach da co trong gio chua
-        for (CartItem item : items) {
-            if (item.getBookId().equals(bookId)) {
-                item.setQuantity(item.getQuantity() + quantity);
-                return;
-            }
-        }
-        // Neu chua co, them moi
-        items.add(CartItem.builder()
-                .bookId(bookId)
-                .quantity(quantity)
-                .build());
-    }
-
-    /**
-     * Cap nhat so luong
-     */
-    public void updateItemQuantity(String bookId, int quantity) {
-        for (CartItem item : items) {
-            if (item.getBookId().equals(bookId)) {
-                if (quantity <= 0) {
-                    removeItem(bookId);
-                } else {
-                    item.setQuantity(quantity);
-                }
-                return;
-            }
-        }
-    }
-
-    /**
-     * Xoa sach khoi gio
-     */
-    public void removeItem(String bookId) {
-        items.removeIf(item -> item.getBookId().equals(bookId));
-    }
-
-    /**
-     * Xoa toan bo gio hang
-     */
-    public void clear() {
-        items.clear();
-    }
+    // Tang 1 o moi lan ghi gio (CartService.touch); ghi co dieu kien so sanh gia tri nay
+    private Long version;
 }
@@ -5,9 +5,13 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 /**
  * CartItem - Mot item trong gio hang
- * Luu bookId va so luong
+ * Luu bookId, so luong va snapshot title/author/gia luc them vao gio
+ * catalogVersion: phien ban catalog luc chup snapshot (CatalogVersion), khac phien ban hien tai -> kiem tra lai
+ * bookUpdatedAt: updatedAt cua sach luc chup snapshot, khac updatedAt hien tai -> snapshot cu, chup lai
  */
 @Data
 @Builder
@@ -19,4 +23,14 @@ public class CartItem {
     
     @Builder.Default
     private Integer quantity = 1;
+
+    private String title;
+
+    private String author;
+
+    private Double price;
+
+    private Long catalogVersion;
+
+    private LocalDateTime bookUpdatedAt;
 }
@@ -0,0 +1,29 @@
+package com.app.dangdoanhtoai2280603283.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * CatalogState - Phien ban dung chung cua catalog (sach + danh muc)
+ * 1 document duy nhat (id = "catalog"), tang version bang $inc sau moi lan ghi sach / danh muc
+ * Luu trong MongoDB de moi instance va moi lan khoi dong deu thay cung 1 ETag
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "catalog_state")
+public class CatalogState {
+
+    @Id
+    private String id;
+
+    private Long version;
+
+    // Epoch millis cua lan ghi cuoi (dung cho Last-Modified)
+    private Long lastModified;
+}
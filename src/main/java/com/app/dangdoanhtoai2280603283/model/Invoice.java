@@ -6,20 +6,28 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.index.Indexed;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Invoice Entity - Hoa don thanh toan
+ * Items duoc nhung truc tiep trong invoice (items = null: invoice cu chua migrate)
  */
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "invoices")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_created_id_idx", def = "{ 'userId': 1, 'createdAt': -1, '_id': -1 }"),
+        @CompoundIndex(name = "status_created_id_idx", def = "{ 'status': 1, 'createdAt': 1, '_id': 1 }"),
+        @CompoundIndex(name = "created_id_idx", def = "{ 'createdAt': -1, '_id': -1 }")
+})
 public class Invoice {
 
     @Id
@@ -28,13 +36,22 @@ public class Invoice {
     @Indexed
     private String userId;
 
-    @DBRef
-    private User user;
+    // Thong tin nguoi mua luu tai thoi diem checkout (khong dung @DBRef User)
+    private String username;
+
+    private String email;
 
     private Double totalAmount;
 
     private OrderStatus status;
 
+    private List<InvoiceItem> items;
+
+    // So dong san pham va tong so luong, luu luc checkout de danh sach don hang khong can doc items
+    private Integer itemCount;
+
+    private Integer totalQuantity;
+
     @CreatedDate
     private LocalDateTime createdAt;
 }
@@ -0,0 +1,35 @@
+package com.app.dangdoanhtoai2280603283.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * InvoiceItem - Mot dong san pham nhung trong Invoice
+ * Luu gia, ten sach va tac gia tai thoi diem mua
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceItem {
+
+    private String bookId;
+
+    private String bookTitle;
+
+    private String bookAuthor;
+
+    // Gia tai thoi diem mua
+    private Double price;
+
+    private Integer quantity;
+
+    /**
+     * Tinh thanh tien cho item
+     */
+    public Double getSubtotal() {
+        return price * quantity;
+    }
+}
@@ -0,0 +1,28 @@
+package com.app.dangdoanhtoai2280603283.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * RevenueDaily - Doanh thu tong hop theo ngay
+ * id = ngay dang yyyy-MM-dd (gio server), cap nhat bang $inc
+ * khi don hang chuyen vao/ra trang thai COMPLETED
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "revenue_daily")
+public class RevenueDaily {
+
+    @Id
+    private String id;
+
+    private Double revenue;
+
+    private Integer orderCount;
+}
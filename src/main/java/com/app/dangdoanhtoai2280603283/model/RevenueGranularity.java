@@ -0,0 +1,22 @@
+package com.app.dangdoanhtoai2280603283.model;
+
+/**
+ * Enum do chi tiet khi thong ke doanh thu
+ * dateFormat: format $dateToString dung lam khoa nhom trong aggregation
+ */
+public enum RevenueGranularity {
+    DAY("%Y-%m-%d"),
+    WEEK("%G-W%V"),
+    MONTH("%Y-%m"),
+    YEAR("%Y");
+
+    private final String dateFormat;
+
+    RevenueGranularity(String dateFormat) {
+        this.dateFormat = dateFormat;
+    }
+
+    public String getDateFormat() {
+        return dateFormat;
+    }
+}
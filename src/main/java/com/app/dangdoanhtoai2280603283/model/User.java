@@ -1,5 +1,6 @@
 package com.app.dangdoanhtoai2280603283.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -61,12 +62,25 @@ public class User implements UserDetails {
 
     private String googleId;
 
+    // Tang len khi khoa user / doi role de thu hoi cac JWT da cap
+    @Builder.Default
+    @JsonIgnore
+    private Long tokenVersion = 0L;
+
     @CreatedDate
     private LocalDateTime createdAt;
 
     @LastModifiedDate
     private LocalDateTime updatedAt;
 
+    /**
+     * tokenVersion hien tai (user cu chua co field nay = 0)
+     */
+    @JsonIgnore
+    public long getCurrentTokenVersion() {
+        return tokenVersion != null ? tokenVersion : 0L;
+    }
+
     // ===== UserDetails Implementation =====
 
     @Override
@@ -4,7 +4,6 @@ import com.app.dangdoanhtoai2280603283.model.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,19 +14,6 @@ import java.util.List;
 @Repository
 public interface BookRepository extends MongoRepository<Book, String> {
 
-    /**
-     * Tim sach theo title (case-insensitive, regex)
-     * BAI 3: GET /books/search?keyword=
-     */
-    @Query("{ 'title': { $regex: ?0, $options: 'i' } }")
-    List<Book> searchByTitle(String keyword);
-
-    /**
-     * Tim sach co gia <= maxPrice, gioi han so luong
-     * BAI 3: GET /books/filter?price=&limit=
-     */
-    List<Book> findByPriceLessThanEqualOrderByPriceAsc(Double maxPrice, Pageable pageable);
-
     /**
      * Lay sach theo category id
      */
@@ -5,6 +5,7 @@ import com.app.dangdoanhtoai2280603283.model.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -45,4 +46,16 @@ public interface InvoiceRepository extends MongoRepository<Invoice, String> {
      * ADMIN: Thong ke doanh thu theo thang (trang thai COMPLETED)
      */
     List<Invoice> findByStatusAndCreatedAtBetween(OrderStatus status, LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * MIGRATION: Tim cac invoice chua co items nhung ben trong
+     */
+    @Query("{ 'items': { $exists: false } }")
+    List<Invoice> findWithoutEmbeddedItems(Pageable pageable);
+
+    /**
+     * BACKFILL: Tim cac invoice chua co itemCount/totalQuantity
+     */
+    @Query("{ 'itemCount': { $exists: false } }")
+    List<Invoice> findWithoutItemCount(Pageable pageable);
 }
@@ -4,6 +4,7 @@ import com.app.dangdoanhtoai2280603283.model.Item;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -16,6 +17,11 @@ public interface ItemRepository extends MongoRepository<Item, String> {
      * Tim tat ca items cua 1 invoice
      */
     List<Item> findByInvoiceId(String invoiceId);
+
+    /**
+     * Tim items cua nhieu invoice cung luc (dung khi migrate)
+     */
+    List<Item> findByInvoiceIdIn(Collection<String> invoiceIds);
     
     /**
      * Xoa tat ca items cua 1 invoice
@@ -0,0 +1,21 @@
+package com.app.dangdoanhtoai2280603283.repository;
+
+import com.app.dangdoanhtoai2280603283.model.RevenueDaily;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository cho RevenueDaily
+ */
+@Repository
+public interface RevenueDailyRepository extends MongoRepository<RevenueDaily, String> {
+
+    /**
+     * Lay cac ngay trong khoang [fromDay, toDay)
+     * id co dang yyyy-MM-dd nen so sanh chuoi dung voi thu tu ngay
+     */
+    List<RevenueDaily> findByIdGreaterThanEqualAndIdLessThan(String fromDay, String toDay, Sort sort);
+}
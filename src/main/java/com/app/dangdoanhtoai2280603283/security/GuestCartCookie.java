@@ -0,0 +1,175 @@
+package com.app.dangdoanhtoai2280603283.security;
+
+import com.app.dangdoanhtoai2280603283.exception.BadRequestException;
+import com.app.dangdoanhtoai2280603283.model.CartItem;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.WebUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Gio hang cua khach (chua dang nhap) luu trong cookie, khong luu DB
+ *
+ * Gia tri cookie: base64url("bookId:qty,bookId:qty") + "." + base64url(HMAC-SHA256)
+ * - Khoa ky = HMAC-SHA256(guest-cart.secret, KEY_LABEL): khong trung khoa JWT du dung chung secret
+ * - Chu ky sai / cookie hong -> coi nhu gio trong
+ * - Toi da MAX_ITEMS dong, moi dong toi da MAX_QUANTITY, cookie toi da MAX_COOKIE_LENGTH ky tu
+ * Gio khach duoc gop vao gio trong DB khi dang nhap (CartService.mergeGuestCart)
+ */
+@Component
+public class GuestCartCookie {
+
+    public static final String COOKIE_NAME = "guest_cart";
+
+    public static final int MAX_ITEMS = 50;
+    public static final int MAX_QUANTITY = 99;
+
+    // Trinh duyet chi chac chan giu cookie <= 4096 byte (tinh ca ten va thuoc tinh)
+    private static final int MAX_COOKIE_LENGTH = 3800;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    // Nhan co dinh de dan xuat khoa rieng cho cookie gio hang
+    private static final String KEY_LABEL = "guest-cart-cookie-v1";
+    private static final Pattern BOOK_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    @Value("${guest-cart.secret}")
+    private String secret;
+
+    @Value("${guest-cart.max-age-days:30}")
+    private int maxAgeDays;
+
+    private SecretKeySpec signingKey;
+
+    @PostConstruct
+    public void init() {
+        SecretKeySpec masterKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        signingKey = new SecretKeySpec(hmac(masterKey, KEY_LABEL.getBytes(StandardCharsets.UTF_8)), HMAC_ALGORITHM);
+    }
+
+    /**
+     * Doc gio khach tu cookie (chi bookId + quantity)
+     */
+    public List<CartItem> read(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        if (cookie == null || cookie.getValue() == null || cookie.getValue().isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return decode(cookie.getValue());
+        } catch (IllegalArgumentException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Ghi gio khach vao cookie; gio trong -> xoa cookie
+     */
+    public void write(HttpServletResponse response, List<CartItem> items) {
+        if (items.isEmpty()) {
+            clear(response);
+            return;
+        }
+        if (items.size() > MAX_ITEMS) {
+            throw new BadRequestException("Gio hang khach toi da " + MAX_ITEMS + " san pham, vui long dang nhap");
+        }
+        for (CartItem item : items) {
+            if (item.getQuantity() > MAX_QUANTITY) {
+                throw new BadRequestException("So luong moi san pham toi da " + MAX_QUANTITY);
+            }
+        }
+
+        String value = encode(items);
+        if (value.length() > MAX_COOKIE_LENGTH) {
+            throw new BadRequestException("Gio hang khach qua lon, vui long dang nhap");
+        }
+        addCookie(response, value, maxAgeDays * 24 * 60 * 60);
+    }
+
+    public void clear(HttpServletResponse response) {
+        addCookie(response, "", 0);
+    }
+
+    private void addCookie(HttpServletResponse response, String value, int maxAgeSeconds) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setHttpOnly(true);
+        cookie.setPath("/");
+        cookie.setMaxAge(maxAgeSeconds);
+        cookie.setAttribute("SameSite", "Lax");
+        response.addCookie(cookie);
+    }
+
+    private String encode(List<CartItem> items) {
+        StringBuilder payload = new StringBuilder();
+        for (CartItem item : items) {
+            if (!payload.isEmpty()) {
+                payload.append(',');
+            }
+            payload.append(item.getBookId()).append(':').append(item.getQuantity());
+        }
+        byte[] payloadBytes = payload.toString().getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payloadBytes) + "." + encoder.encodeToString(sign(payloadBytes));
+    }
+
+    private List<CartItem> decode(String value) {
+        int separator = value.indexOf('.');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Missing signature");
+        }
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        byte[] payloadBytes = decoder.decode(value.substring(0, separator));
+        byte[] signature = decoder.decode(value.substring(separator + 1));
+        if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+            throw new IllegalArgumentException("Invalid signature");
+        }
+
+        List<CartItem> items = new ArrayList<>();
+        for (String entry : new String(payloadBytes, StandardCharsets.UTF_8).split(",")) {
+            int colon = entry.indexOf(':');
+            if (colon < 0 || items.size() >= MAX_ITEMS) {
+                continue;
+            }
+            String bookId = entry.substring(0, colon);
+            int quantity;
+            try {
+                quantity = Integer.parseInt(entry.substring(colon + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (BOOK_ID.matcher(bookId).matches() && quantity > 0) {
+                items.add(CartItem.builder()
+                        .bookId(bookId)
+                        .quantity(Math.min(quantity, MAX_QUANTITY))
+                        .build());
+            }
+        }
+        return items;
+    }
+
+    private byte[] sign(byte[] payload) {
+        return hmac(signingKey, payload);
+    }
+
+    private static byte[] hmac(SecretKeySpec key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign guest cart cookie", e);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.app.dangdoanhtoai2280603283.security;
 
+import com.app.dangdoanhtoai2280603283.model.Role;
+import com.app.dangdoanhtoai2280603283.model.User;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,6 +21,9 @@ import java.io.IOException;
 /**
  * JWT Authentication Filter
  * Loc moi request de xac thuc JWT token
+ *
+ * Principal duoc dung tu claims cua token, khong query DB.
+ * Token bi thu hoi khi claim "ver" khac tokenVersion trong TokenVersionCache
  */
 @Component
 @RequiredArgsConstructor
@@ -25,6 +31,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
     private final CustomUserDetailsService userDetailsService;
+    private final TokenVersionCache tokenVersionCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -34,26 +41,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Lay JWT tu header
             String jwt = getJwtFromRequest(request);
 
-            // Xac thuc token
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
-                // Lay username tu token
-                String username = jwtTokenProvider.getUsernameFromToken(jwt);
+            // Xac thuc token (parse 1 lan)
+            Claims claims = StringUtils.hasText(jwt) ? jwtTokenProvider.parseClaims(jwt) : null;
 
-                // Load user details
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            if (claims != null) {
+                UserDetails userDetails = buildUserDetails(claims);
 
-                // Tao authentication token
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
+                if (userDetails != null) {
+                    // Tao authentication token
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails,
+                                    null,
+                                    userDetails.getAuthorities()
+                            );
 
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                // Set authentication vao SecurityContext
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    // Set authentication vao SecurityContext
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
@@ -62,6 +69,33 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Dung principal tu claims cua token
+     * @return null neu token da bi thu hoi
+     */
+    private UserDetails buildUserDetails(Claims claims) {
+        String userId = claims.get(JwtTokenProvider.CLAIM_USER_ID, String.class);
+
+        // Token cu (cap truoc khi co claim uid): load user tu DB nhu truoc
+        if (userId == null) {
+            return userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+
+        Number tokenVersion = claims.get(JwtTokenProvider.CLAIM_TOKEN_VERSION, Number.class);
+        if (tokenVersion == null || tokenVersion.longValue() != tokenVersionCache.getVersion(userId)) {
+            return null;
+        }
+
+        return User.builder()
+                .id(userId)
+                .username(claims.getSubject())
+                .email(claims.get(JwtTokenProvider.CLAIM_EMAIL, String.class))
+                .role(Role.valueOf(claims.get(JwtTokenProvider.CLAIM_ROLE, String.class)))
+                .tokenVersion(tokenVersion.longValue())
+                .enabled(true)
+                .build();
+    }
+
     /**
      * Lay JWT token tu header Authorization
      * Format: Bearer <token>
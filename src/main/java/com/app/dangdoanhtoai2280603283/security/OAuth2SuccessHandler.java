@@ -1,5 +1,9 @@
 package com.app.dangdoanhtoai2280603283.security;
 
+import com.app.dangdoanhtoai2280603283.model.CartItem;
+import com.app.dangdoanhtoai2280603283.model.Role;
+import com.app.dangdoanhtoai2280603283.model.User;
+import com.app.dangdoanhtoai2280603283.service.CartService;
 import com.app.dangdoanhtoai2280603283.service.OAuth2Service;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -14,6 +18,8 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
 /**
  * OAUTH2 SUCCESS HANDLER
@@ -23,18 +29,26 @@ import java.nio.charset.StandardCharsets;
 public class OAuth2SuccessHandler extends SimpleUrlAuthenticationSuccessHandler {
 
     private final OAuth2Service oAuth2Service;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final CartService cartService;
+    private final GuestCartCookie guestCartCookie;
 
     @Value("${frontend.url:http://localhost:8082/frontend/pages}")
     private String frontendUrl;
 
-    public OAuth2SuccessHandler(OAuth2Service oAuth2Service) {
+    public OAuth2SuccessHandler(OAuth2Service oAuth2Service, JwtTokenProvider jwtTokenProvider,
+                                CartService cartService, GuestCartCookie guestCartCookie) {
         this.oAuth2Service = oAuth2Service;
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.cartService = cartService;
+        this.guestCartCookie = guestCartCookie;
     }
 
     /**
      * Sau khi dang nhap Google thanh cong
      * - Lay thong tin OAuth2User
      * - Goi OAuth2Service de tao/cap nhat user trong database
+     * - Gop gio hang khach (cookie) vao gio cua user
      * - Sinh JWT token
      * - Redirect ve frontend voi token trong URL
      */
@@ -56,8 +70,17 @@ public class OAuth2SuccessHandler extends SimpleUrlAuthenticationSuccessHandler
             String role = (String) result.get("role");
             String provider = (String) result.get("provider");
 
+            User user = (User) result.get("user");
+
+            // Gop gio hang khach vao gio cua user (chi USER co gio hang)
+            List<CartItem> guestItems = guestCartCookie.read(request);
+            if (user.getRole() == Role.USER && !guestItems.isEmpty()
+                    && cartService.mergeGuestCart(user.getId(), guestItems)) {
+                guestCartCookie.clear(response);
+            }
+
             // Sinh JWT token
-            String token = jwtTokenProvider.generateToken(username);
+            String token = jwtTokenProvider.generateToken(user);
 
             // Build redirect URL voi token trong query param
             String redirectUrl = frontendUrl + "/index.html?token=" + URLEncoder.encode(token, StandardCharsets.UTF_8)
@@ -78,6 +101,4 @@ public class OAuth2SuccessHandler extends SimpleUrlAuthenticationSuccessHandler
             getRedirectStrategy().sendRedirect(request, response, errorUrl);
         }
     }
-
-    private final JwtTokenProvider jwtTokenProvider = new JwtTokenProvider();
 }
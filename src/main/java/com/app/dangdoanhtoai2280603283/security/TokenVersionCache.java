@@ -0,0 +1,57 @@
+package com.app.dangdoanhtoai2280603283.security;
+
+import com.app.dangdoanhtoai2280603283.model.User;
+import com.app.dangdoanhtoai2280603283.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cache tokenVersion cua user trong bo nho
+ * - JwtAuthenticationFilter so sanh claim "ver" cua token voi gia tri trong cache
+ * - Moi user chi doc DB 1 lan, sau do xac thuc token khong can query
+ * - Caffeine gioi han kich thuoc (bo user it dung nhat) + het han neu lau khong truy cap
+ * - Nhieu request cung miss 1 user chi load DB 1 lan, khong chan cac user khac
+ * - UserService goi invalidate() khi khoa user / doi role de thu hoi token cu
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenVersionCache {
+
+    // Gia tri tra ve khi user khong ton tai hoac bi khoa: khong token nao hop le
+    public static final long REVOKED = -1L;
+
+    private static final long MAX_USERS = 10_000;
+    private static final Duration IDLE_TTL = Duration.ofMinutes(30);
+
+    private final UserRepository userRepository;
+
+    private final Cache<String, Long> versions = Caffeine.newBuilder()
+            .maximumSize(MAX_USERS)
+            .expireAfterAccess(IDLE_TTL)
+            .build();
+
+    /**
+     * Lay tokenVersion hien tai cua user
+     */
+    public long getVersion(String userId) {
+        return versions.get(userId, this::loadVersion);
+    }
+
+    /**
+     * Xoa cache cua user, lan xac thuc tiep theo se doc lai tu DB
+     */
+    public void invalidate(String userId) {
+        versions.invalidate(userId);
+    }
+
+    private long loadVersion(String userId) {
+        return userRepository.findById(userId)
+                .filter(User::isEnabled)
+                .map(User::getCurrentTokenVersion)
+                .orElse(REVOKED);
+    }
+}
@@ -55,7 +55,7 @@ public class AuthService {
         User savedUser = userRepository.save(user);
 
         // Sinh JWT token
-        String token = jwtTokenProvider.generateToken(savedUser.getUsername());
+        String token = jwtTokenProvider.generateToken(savedUser);
 
         return AuthResponse.builder()
                 .id(savedUser.getId())
@@ -83,7 +83,7 @@ public class AuthService {
         User user = (User) authentication.getPrincipal();
 
         // Sinh JWT token
-        String token = jwtTokenProvider.generateToken(user.getUsername());
+        String token = jwtTokenProvider.generateToken(user);
 
         return AuthResponse.builder()
                 .id(user.getId())
@@ -0,0 +1,278 @@
+package com.app.dangdoanhtoai2280603283.service;
+
+import com.app.dangdoanhtoai2280603283.dto.BookSummary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Index gia / danh muc dang cot trong bo nho
+ * - prices: double[] tang dan, categoryOrdinals: int[], ids + rows cung thu tu
+ * - Loc theo khoang gia bang binary search, loc danh muc bang so sanh int, khong boxing
+ * - Ghi (them/sua/xoa sach) tao snapshot moi (copy-on-write) roi thay bang 1 phep gan volatile,
+ *   nguoi doc khong bao gio phai lock
+ *
+ * BookService nap du lieu luc khoi dong va cap nhat sau moi lan ghi sach
+ * Nap lai (rebuild) doc DB ngoai lock; neu co put/remove chen vao trong luc doc (writeGeneration doi)
+ * thi doc lai, tranh ghi de thay doi moi bang du lieu cu
+ */
+@Component
+public class BookPriceIndex {
+
+    private static final int NO_CATEGORY = -1;
+
+    // So lan doc lai DB khi rebuild bi put/remove chen ngang, sau do doc trong lock
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private volatile boolean ready = false;
+
+    // Tang sau moi put/remove (trong lock)
+    private volatile long writeGeneration = 0;
+
+    /**
+     * Index da duoc nap day du tu DB chua
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return snapshot.ids.length;
+    }
+
+    /**
+     * Thay toan bo index (luc khoi dong / sau migrate)
+     * loader doc toan bo sach tu DB; duoc goi ngoai lock, lap lai neu co ghi chen ngang
+     */
+    public void rebuild(Supplier<? extends Collection<BookSummary>> loader) {
+        for (int attempt = 0; attempt < MAX_REBUILD_ATTEMPTS; attempt++) {
+            long generation = writeGeneration;
+            Collection<BookSummary> books = loader.get();
+            synchronized (this) {
+                if (writeGeneration == generation) {
+                    install(books);
+                    return;
+                }
+            }
+        }
+        // Ghi lien tuc: doc trong lock, cac put/remove cho den khi nap xong
+        synchronized (this) {
+            install(loader.get());
+        }
+    }
+
+    private void install(Collection<BookSummary> books) {
+        List<BookSummary> rows = books.stream()
+                .filter(book -> book.getId() != null && book.getPrice() != null)
+                .sorted(Comparator.comparingDouble(BookSummary::getPrice))
+                .toList();
+        snapshot = Snapshot.of(rows, new HashMap<>(), new ArrayList<>());
+        ready = true;
+    }
+
+    /**
+     * Them hoac cap nhat 1 sach
+     */
+    public synchronized void put(BookSummary book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        writeGeneration++;
+        List<BookSummary> rows = snapshot.rowsWithout(Set.of(book.getId()));
+        if (book.getPrice() != null) {
+            int insertAt = upperBound(rows, book.getPrice());
+            rows.add(insertAt, book);
+        }
+        snapshot = Snapshot.of(rows, new HashMap<>(snapshot.ordinalByCategory),
+                new ArrayList<>(Arrays.asList(snapshot.categoryIds)));
+    }
+
+    /**
+     * Xoa 1 sach
+     */
+    public void remove(String bookId) {
+        removeAll(Set.of(bookId));
+    }
+
+    /**
+     * Xoa nhieu sach, chi tao 1 snapshot moi (vd xoa ca danh muc)
+     */
+    public synchronized void removeAll(Collection<String> bookIds) {
+        writeGeneration++;
+        Set<String> ids = Set.copyOf(bookIds);
+        if (ids.isEmpty() || !snapshot.containsAny(ids)) {
+            return;
+        }
+        snapshot = Snapshot.of(snapshot.rowsWithout(ids), new HashMap<>(snapshot.ordinalByCategory),
+                new ArrayList<>(Arrays.asList(snapshot.categoryIds)));
+    }
+
+    /**
+     * Sach co minPrice <= gia <= maxPrice (null: khong gioi han), thuoc categoryId (null: tat ca),
+     * sap xep gia tang dan, toi da limit phan tu (top-K re nhat)
+     */
+    public List<BookSummary> findByPrice(Double minPrice, Double maxPrice, String categoryId, int limit) {
+        Snapshot current = snapshot;
+        double[] prices = current.prices;
+
+        int from = minPrice != null ? lowerBound(prices, minPrice) : 0;
+        int to = maxPrice != null ? upperBound(prices, maxPrice) : prices.length;
+
+        int categoryOrdinal = NO_CATEGORY;
+        if (categoryId != null) {
+            Integer ordinal = current.ordinalByCategory.get(categoryId);
+            if (ordinal == null) {
+                return List.of();
+            }
+            categoryOrdinal = ordinal;
+        }
+
+        List<BookSummary> result = new ArrayList<>(Math.max(0, Math.min(limit, to - from)));
+        int[] categoryOrdinals = current.categoryOrdinals;
+        for (int i = from; i < to && result.size() < limit; i++) {
+            if (categoryOrdinal == NO_CATEGORY || categoryOrdinals[i] == categoryOrdinal) {
+                result.add(current.rows[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Vi tri dau tien co gia >= value
+     */
+    private static int lowerBound(double[] prices, double value) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Vi tri dau tien co gia > value
+     */
+    private static int upperBound(double[] prices, double value) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(List<BookSummary> rows, double value) {
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rows.get(mid).getPrice() <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Du lieu bat bien cua index; moi lan ghi tao 1 snapshot moi
+     */
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(
+                new double[0], new int[0], new String[0], new BookSummary[0], Map.of(), new String[0]);
+
+        private final double[] prices;
+        private final int[] categoryOrdinals;
+        private final String[] ids;
+        private final BookSummary[] rows;
+        // categoryId -> ordinal va nguoc lai
+        private final Map<String, Integer> ordinalByCategory;
+        private final String[] categoryIds;
+
+        private Snapshot(double[] prices, int[] categoryOrdinals, String[] ids, BookSummary[] rows,
+                         Map<String, Integer> ordinalByCategory, String[] categoryIds) {
+            this.prices = prices;
+            this.categoryOrdinals = categoryOrdinals;
+            this.ids = ids;
+            this.rows = rows;
+            this.ordinalByCategory = ordinalByCategory;
+            this.categoryIds = categoryIds;
+        }
+
+        /**
+         * Tao snapshot tu danh sach da sap xep theo gia
+         * Ordinal cua danh muc cu duoc giu nguyen, danh muc moi duoc cap ordinal tiep theo
+         */
+        private static Snapshot of(List<BookSummary> sortedRows, Map<String, Integer> ordinalByCategory,
+                                   List<String> categoryIds) {
+            int size = sortedRows.size();
+            double[] prices = new double[size];
+            int[] categoryOrdinals = new int[size];
+            String[] ids = new String[size];
+            BookSummary[] rows = new BookSummary[size];
+
+            for (int i = 0; i < size; i++) {
+                BookSummary book = sortedRows.get(i);
+                prices[i] = book.getPrice();
+                ids[i] = book.getId();
+                rows[i] = book;
+
+                String categoryId = book.getCategoryId();
+                if (categoryId == null) {
+                    categoryOrdinals[i] = NO_CATEGORY;
+                } else {
+                    Integer ordinal = ordinalByCategory.get(categoryId);
+                    if (ordinal == null) {
+                        ordinal = categoryIds.size();
+                        categoryIds.add(categoryId);
+                        ordinalByCategory.put(categoryId, ordinal);
+                    }
+                    categoryOrdinals[i] = ordinal;
+                }
+            }
+            return new Snapshot(prices, categoryOrdinals, ids, rows,
+                    Map.copyOf(ordinalByCategory), categoryIds.toArray(new String[0]));
+        }
+
+        private boolean containsAny(Set<String> bookIds) {
+            for (String id : ids) {
+                if (bookIds.contains(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private List<BookSummary> rowsWithout(Set<String> bookIds) {
+            List<BookSummary> result = new ArrayList<>(rows.length + 1);
+            for (int i = 0; i < rows.length; i++) {
+                if (!bookIds.contains(ids[i])) {
+                    result.add(rows[i]);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -1,26 +1,57 @@
 package com.app.dangdoanhtoai2280603283.service;
 
+import com.app.dangdoanhtoai2280603283.dto.BookLookupResponse;
 import com.app.dangdoanhtoai2280603283.dto.BookRequest;
+import com.app.dangdoanhtoai2280603283.dto.BookSummary;
+import com.app.dangdoanhtoai2280603283.dto.BrowseResponse;
+import com.app.dangdoanhtoai2280603283.dto.PageResponse;
+import com.app.dangdoanhtoai2280603283.dto.SuggestResponse;
+import com.app.dangdoanhtoai2280603283.exception.BadRequestException;
 import com.app.dangdoanhtoai2280603283.exception.ResourceNotFoundException;
 import com.app.dangdoanhtoai2280603283.model.Book;
 import com.app.dangdoanhtoai2280603283.model.Category;
 import com.app.dangdoanhtoai2280603283.repository.BookRepository;
 import com.app.dangdoanhtoai2280603283.repository.CategoryRepository;
+import com.app.dangdoanhtoai2280603283.util.PageCursor;
+import com.app.dangdoanhtoai2280603283.util.TextNormalizer;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.FacetOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
  * Service xu ly Book (BAI 3)
  * - CRUD sach
- * - Tim kiem theo title
- * - Loc theo gia
+ * - Tim kiem full-text (title, author, description)
+ * - Loc theo gia (index gia trong bo nho, BookPriceIndex)
  */
 @Service
 @RequiredArgsConstructor
@@ -28,6 +59,37 @@ public class BookService {
 
     private final BookRepository bookRepository;
     private final CategoryRepository categoryRepository;
+    private final MongoTemplate mongoTemplate;
+    private final BookSuggestIndex bookSuggestIndex;
+    private final CatalogVersion catalogVersion;
+    private final CatalogCache catalogCache;
+    private final BookPriceIndex bookPriceIndex;
+
+    // Gioi han so ket qua tim kiem toi da (tong tat ca cac trang)
+    public static final int MAX_SEARCH_RESULTS = 200;
+
+    // So ket qua toi da moi trang tim kiem
+    public static final int MAX_SEARCH_PAGE_SIZE = 50;
+
+    // So goi y toi da moi loai (title / tac gia)
+    public static final int MAX_SUGGESTIONS = 20;
+
+    // Cac truong duoc phep sap xep o GET /books va GET /books/browse
+    // Moi truong deu co compound index (truong, _id) tren Book: sap xep = duyet index, khong sort trong bo nho
+    public static final Set<String> CATALOG_SORT_FIELDS = Set.of("createdAt", "price", "title");
+
+    // Moc khoang gia (VND) cho facet priceBuckets, gia >= moc cuoi roi vao bucket PRICE_BUCKET_OVERFLOW
+    private static final Double[] PRICE_BUCKET_BOUNDARIES = {0d, 50_000d, 100_000d, 200_000d, 500_000d, 1_000_000d};
+    private static final String PRICE_BUCKET_OVERFLOW = "overflow";
+
+    // So ID toi da trong 1 request multi-get
+    public static final int MAX_LOOKUP_IDS = 200;
+
+    // So tu toi da luu trong searchTokens cua 1 sach
+    private static final int MAX_SEARCH_TOKENS = 32;
+
+    // So sach xu ly trong moi batch khi backfill searchTokens
+    private static final int SEARCH_TOKENS_BATCH_SIZE = 500;
 
     /**
      * Populate categoryId và categoryName từ Category object
@@ -45,63 +107,509 @@ public class BookService {
     }
 
     /**
-     * Populate categoryId và categoryName cho list books
+     * Doc danh sach BookSummary theo query (projection, khong doc description)
      */
-    private List<Book> populateCategoryFieldsForList(List<Book> books) {
-        return books.stream()
-                .peek(this::populateCategoryFields)
-                .collect(Collectors.toList());
+    private List<BookSummary> findSummaries(Query query) {
+        query.fields().include(BookSummary.FIELDS);
+        List<BookSummary> summaries = mongoTemplate.find(
+                query, BookSummary.class, mongoTemplate.getCollectionName(Book.class));
+        populateCategoryFields(summaries);
+        return summaries;
     }
 
     /**
-     * Populate categoryId và categoryName cho page books
+     * Populate categoryId và categoryName cho BookSummary của dữ liệu cũ (@DBRef Category)
+     * Tên danh mục được lấy bằng 1 query $in thay vì resolve từng DBRef
      */
-    private Page<Book> populateCategoryFieldsForPage(Page<Book> booksPage) {
-        List<Book> content = populateCategoryFieldsForList(booksPage.getContent());
-        return new PageImpl<>(
-                content,
-                booksPage.getPageable(),
-                booksPage.getTotalElements()
-        );
+    private void populateCategoryFields(List<BookSummary> summaries) {
+        Map<String, List<BookSummary>> legacyByCategoryId = new HashMap<>();
+        for (BookSummary summary : summaries) {
+            if ((summary.getCategoryId() == null || summary.getCategoryId().isEmpty())
+                    && summary.getCategory() != null) {
+                String categoryId = String.valueOf(summary.getCategory().getId());
+                summary.setCategoryId(categoryId);
+                legacyByCategoryId.computeIfAbsent(categoryId, key -> new ArrayList<>()).add(summary);
+            }
+        }
+        if (legacyByCategoryId.isEmpty()) {
+            return;
+        }
+        for (Category category : categoryRepository.findAllById(legacyByCategoryId.keySet())) {
+            legacyByCategoryId.get(category.getId())
+                    .forEach(summary -> summary.setCategoryName(category.getName()));
+        }
+    }
+
+    /**
+     * Tao Sort cho danh sach sach: sortBy (thuoc CATALOG_SORT_FIELDS) roi _id de thu tu on dinh
+     * Truong khong nam trong danh sach -> 400 (khong de MongoDB sort trong bo nho tren truong khong co index)
+     */
+    public static Sort catalogSort(String sortBy, String order) {
+        if (!CATALOG_SORT_FIELDS.contains(sortBy)) {
+            throw new BadRequestException("Khong ho tro sap xep theo: " + sortBy
+                    + " (cho phep: " + String.join(", ", new TreeSet<>(CATALOG_SORT_FIELDS)) + ")");
+        }
+        Sort.Direction direction = "asc".equalsIgnoreCase(order) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return Sort.by(direction, sortBy, "_id");
     }
 
     /**
      * Lay tat ca sach (phan trang)
      * GET /books
      */
-    public Page<Book> getAllBooks(Pageable pageable) {
-        Page<Book> booksPage = bookRepository.findAll(pageable);
-        return populateCategoryFieldsForPage(booksPage);
+    public Page<BookSummary> getAllBooks(Pageable pageable) {
+        List<BookSummary> books = findSummaries(new Query().with(pageable));
+        return PageableExecutionUtils.getPage(books, pageable, bookRepository::count);
+    }
+
+    /**
+     * Lay sach theo cursor (keyset pagination tren createdAt, _id)
+     * GET /books?cursor=
+     * Khong dung skip; chi dem tong so sach khi includeTotal = true
+     */
+    public PageResponse<List<BookSummary>> getBooksByCursor(String cursor, int limit,
+                                                            Sort.Direction direction, boolean includeTotal) {
+        Query query = PageCursor.seekQuery(new Criteria(), cursor, direction, limit);
+        List<BookSummary> books = findSummaries(query);
+
+        return PageCursor.toPageResponse(books, limit, BookSummary::getCreatedAt, BookSummary::getId,
+                book -> book, includeTotal ? bookRepository::count : null);
     }
 
     /**
      * Lay chi tiet sach theo ID
      * GET /books/:id
+     * Doc qua CatalogCache, miss moi query MongoDB
      */
     public Book getBookById(String id) {
-        Book book = bookRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Book", "id", id));
+        Book book = catalogCache.getBook(id, this::loadBook);
+        if (book == null) {
+            throw new ResourceNotFoundException("Book", "id", id);
+        }
+        return book;
+    }
+
+    /**
+     * Doc sach tu MongoDB (khong qua cache), null neu khong ton tai
+     */
+    private Book loadBook(String id) {
+        Book book = bookRepository.findById(id).orElse(null);
         populateCategoryFields(book);
         return book;
     }
 
     /**
-     * Tim kiem sach theo title (case-insensitive, regex)
-     * GET /books/search?keyword=
+     * Lay danh muc qua CatalogCache
+     */
+    private Category findCategory(String categoryId) {
+        Category category = catalogCache.getCategory(categoryId,
+                key -> categoryRepository.findById(key).orElse(null));
+        if (category == null) {
+            throw new ResourceNotFoundException("Category", "id", categoryId);
+        }
+        return category;
+    }
+
+    /**
+     * Lay version + thoi diem cap nhat cuoi cua sach (updatedAt, sach cu: createdAt)
+     * Chi doc cac field nay, dung cho conditional GET truoc khi doc ca document
+     */
+    public BookStamp getBookStamp(String id) {
+        Book book = catalogCache.getBookIfPresent(id);
+        if (book == null) {
+            Query query = Query.query(Criteria.where("id").is(id));
+            query.fields().include("version", "updatedAt", "createdAt");
+            book = mongoTemplate.findOne(query, Book.class);
+        }
+        if (book == null) {
+            throw new ResourceNotFoundException("Book", "id", id);
+        }
+        return new BookStamp(book.getVersion(),
+                book.getUpdatedAt() != null ? book.getUpdatedAt() : book.getCreatedAt());
+    }
+
+    public record BookStamp(Long version, LocalDateTime lastModified) {
+    }
+
+    /**
+     * Lay nhieu sach cung luc theo danh sach ID
+     * Sach co trong CatalogCache lay tu cache, cac ID con lai chi 1 query $in
+     * Sach khong ton tai se khong co trong Map ket qua
      */
-    public List<Book> searchBooks(String keyword) {
-        List<Book> books = bookRepository.searchByTitle(keyword);
-        return populateCategoryFieldsForList(books);
+    public Map<String, Book> getBooksByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        return new HashMap<>(catalogCache.getBooks(new LinkedHashSet<>(ids), this::loadBooks));
+    }
+
+    /**
+     * Doc nhieu sach tu MongoDB bang 1 query $in (khong qua cache)
+     */
+    private Map<String, Book> loadBooks(Set<? extends String> ids) {
+        Map<String, Book> booksById = new HashMap<>();
+        for (Book book : bookRepository.findAllById(List.copyOf(ids))) {
+            populateCategoryFields(book);
+            booksById.put(book.getId(), book);
+        }
+        return booksById;
     }
 
     /**
-     * Loc sach theo gia toi da
-     * GET /books/filter?price=&limit=
+     * Lay nhieu sach theo danh sach ID, giu dung thu tu yeu cau
+     * GET /api/books?ids=a,b,c va POST /api/books/lookup
      */
-    public List<Book> filterBooksByPrice(Double maxPrice, int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        List<Book> books = bookRepository.findByPriceLessThanEqualOrderByPriceAsc(maxPrice, pageable);
-        return populateCategoryFieldsForList(books);
+    public BookLookupResponse lookupBooks(List<String> ids) {
+        List<String> requestedIds = ids.stream()
+                .filter(id -> id != null && !id.isBlank())
+                .map(String::trim)
+                .distinct()
+                .toList();
+        if (requestedIds.size() > MAX_LOOKUP_IDS) {
+            throw new BadRequestException("Toi da " + MAX_LOOKUP_IDS + " ID moi lan");
+        }
+
+        Map<String, Book> booksById = getBooksByIds(requestedIds);
+        List<Book> books = new ArrayList<>();
+        List<String> missingIds = new ArrayList<>();
+        for (String id : requestedIds) {
+            Book book = booksById.get(id);
+            if (book != null) {
+                books.add(book);
+            } else {
+                missingIds.add(id);
+            }
+        }
+
+        return BookLookupResponse.builder()
+                .books(books)
+                .missingIds(missingIds)
+                .build();
+    }
+
+    /**
+     * Tim kiem sach
+     * GET /books/search?keyword=&page=&limit=
+     *
+     * 1. Tim full-text (text index books_text_idx, gom ca description), sap xep theo textScore;
+     *    skip/limit chay trong MongoDB
+     * 2. Text search khong co ket qua (vd go do tu khoa chua het: "sach lap tr"):
+     *    tim khong dau tren title + author qua searchTokens (index search_tokens_idx) -
+     *    sach phai chua tat ca cac tu, tu cuoi khop theo tien to; sap xep theo title, _id
+     *    (title_id_idx), skip/limit chay trong MongoDB
+     *
+     * - Phan trang, moi trang toi da MAX_SEARCH_PAGE_SIZE
+     * - Tong so ket qua bi gioi han boi MAX_SEARCH_RESULTS (controller tra ve truncated = true)
+     */
+    public Page<BookSummary> searchBooks(String keyword, int page, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_SEARCH_PAGE_SIZE));
+        Pageable pageable = PageRequest.of(Math.max(page, 0), pageSize);
+        if (keyword == null || keyword.isBlank() || pageable.getOffset() >= MAX_SEARCH_RESULTS) {
+            return Page.empty(pageable);
+        }
+        int pageLimit = Math.min(pageSize, MAX_SEARCH_RESULTS - (int) pageable.getOffset());
+
+        TextCriteria textCriteria = TextCriteria.forDefaultLanguage().matching(keyword.trim());
+        List<BookSummary> books = findSummaries(TextQuery.queryText(textCriteria)
+                .sortByScore()
+                .skip(pageable.getOffset())
+                .limit(pageLimit));
+        long total = mongoTemplate.count(TextQuery.queryText(textCriteria).limit(MAX_SEARCH_RESULTS), Book.class);
+        if (total > 0) {
+            return new PageImpl<>(books, pageable, total);
+        }
+
+        List<String> queryTokens = TextNormalizer.tokenize(keyword);
+        if (queryTokens.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        Criteria tokenCriteria = searchTokensCriteria(queryTokens);
+        books = findSummaries(Query.query(tokenCriteria)
+                .with(Sort.by(Sort.Direction.ASC, "title", "_id"))
+                .skip(pageable.getOffset())
+                .limit(pageLimit));
+        total = mongoTemplate.count(Query.query(tokenCriteria).limit(MAX_SEARCH_RESULTS), Book.class);
+        return new PageImpl<>(books, pageable, total);
+    }
+
+    /**
+     * Dieu kien: searchTokens chua tat ca cac tu, tu cuoi khop theo tien to
+     */
+    private static Criteria searchTokensCriteria(List<String> queryTokens) {
+        List<String> fullTokens = queryTokens.subList(0, queryTokens.size() - 1);
+        String lastToken = queryTokens.get(queryTokens.size() - 1);
+
+        // Token chi gom [a-z0-9] nen regex "^prefix" an toan va dung duoc index
+        Criteria prefixCriteria = Criteria.where("searchTokens").regex("^" + lastToken);
+        return fullTokens.isEmpty()
+                ? prefixCriteria
+                : new Criteria().andOperator(Criteria.where("searchTokens").all(fullTokens), prefixCriteria);
+    }
+
+    /**
+     * Duyet catalog co bo loc: trang ket qua + dem theo danh muc + dem theo khoang gia
+     * GET /books/browse
+     *
+     * 1 aggregation:
+     * - $match theo keyword (searchTokens), categoryId, khoang gia (index category_price_idx)
+     * - $sort ngoai $facet (sub-pipeline cua $facet khong dung duoc index): di theo
+     *   created_id_idx / price_id_idx / title_id_idx, khong sort trong bo nho
+     * - $facet: results (skip/limit + projection BookSummary), total, priceBuckets,
+     *   categories (khi khong loc danh muc)
+     * categories dem tren bo loc keyword + gia nhung KHONG theo categoryId (chon 1 danh muc
+     * khong lam thanh ben thu lai con 1 danh muc); khi co categoryId thi dem bang aggregation thu 2
+     * Sach cu (@DBRef category, chua migrate) duoc dem theo category.$id; bo loc categoryId chi khop
+     * sach da co categoryId (POST /api/migrate-books de loc duoc sach cu)
+     */
+    public BrowseResponse browseBooks(String keyword, String categoryId, Double minPrice, Double maxPrice,
+                                      String sortBy, String order, int page, int limit) {
+        Sort sort = catalogSort(sortBy, order);
+        int pageSize = Math.max(1, Math.min(limit, MAX_SEARCH_PAGE_SIZE));
+        int pageNumber = Math.max(page, 0);
+
+        List<Criteria> filters = new ArrayList<>();
+        List<String> queryTokens = TextNormalizer.tokenize(keyword);
+        if (!queryTokens.isEmpty()) {
+            filters.add(searchTokensCriteria(queryTokens));
+        }
+        if (minPrice != null || maxPrice != null) {
+            Criteria priceCriteria = Criteria.where("price");
+            if (minPrice != null) {
+                priceCriteria.gte(minPrice);
+            }
+            if (maxPrice != null) {
+                priceCriteria.lte(maxPrice);
+            }
+            filters.add(priceCriteria);
+        }
+        // Bo loc cho dem theo danh muc: khong gom categoryId
+        Criteria categoryFacetCriteria = allOf(filters);
+        boolean filterByCategory = categoryId != null && !categoryId.isBlank();
+        if (filterByCategory) {
+            filters.add(Criteria.where("categoryId").is(categoryId));
+        }
+        Criteria criteria = allOf(filters);
+
+        FacetOperation facet = Aggregation.facet(
+                        Aggregation.skip((long) pageNumber * pageSize),
+                        Aggregation.limit(pageSize),
+                        Aggregation.project(BookSummary.FIELDS))
+                .as("results")
+                .and(Aggregation.count().as("count"))
+                .as("total")
+                .and(Aggregation.bucket("price")
+                        .withBoundaries((Object[]) PRICE_BUCKET_BOUNDARIES)
+                        .withDefaultBucket(PRICE_BUCKET_OVERFLOW)
+                        .andOutputCount().as("count"))
+                .as("priceBuckets");
+        if (!filterByCategory) {
+            facet = facet.and(categoryCountStages()).as("categories");
+        }
+
+        String collection = mongoTemplate.getCollectionName(Book.class);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.sort(sort),
+                facet);
+
+        Document facets = mongoTemplate.aggregate(aggregation, collection, Document.class)
+                .getUniqueMappedResult();
+        if (facets == null) {
+            facets = new Document();
+        }
+        List<Document> categoryDocs;
+        if (filterByCategory) {
+            List<AggregationOperation> stages = new ArrayList<>();
+            stages.add(Aggregation.match(categoryFacetCriteria));
+            stages.addAll(List.of(categoryCountStages()));
+            categoryDocs = mongoTemplate.aggregate(Aggregation.newAggregation(stages), collection, Document.class)
+                    .getMappedResults();
+        } else {
+            categoryDocs = facets.getList("categories", Document.class, List.of());
+        }
+
+        List<BookSummary> books = facets.getList("results", Document.class, List.of()).stream()
+                .map(doc -> mongoTemplate.getConverter().read(BookSummary.class, doc))
+                .collect(Collectors.toCollection(ArrayList::new));
+        populateCategoryFields(books);
+
+        List<Document> totalDocs = facets.getList("total", Document.class, List.of());
+        long total = totalDocs.isEmpty() ? 0 : ((Number) totalDocs.get(0).get("count")).longValue();
+
+        List<BrowseResponse.CategoryFacet> categories = categoryDocs.stream()
+                .map(doc -> BrowseResponse.CategoryFacet.builder()
+                        .categoryId(String.valueOf(doc.get("_id")))
+                        .categoryName(doc.getString("categoryName"))
+                        .count(((Number) doc.get("count")).longValue())
+                        .build())
+                .toList();
+        populateCategoryNames(categories);
+
+        List<BrowseResponse.PriceBucket> priceBuckets = facets.getList("priceBuckets", Document.class, List.of())
+                .stream()
+                .map(BookService::toPriceBucket)
+                .toList();
+
+        return BrowseResponse.builder()
+                .books(books)
+                .total(total)
+                .page(pageNumber)
+                .limit(pageSize)
+                .totalPages((int) Math.ceil((double) total / pageSize))
+                .categories(categories)
+                .priceBuckets(priceBuckets)
+                .build();
+    }
+
+    private static Criteria allOf(List<Criteria> filters) {
+        return filters.isEmpty()
+                ? new Criteria()
+                : new Criteria().andOperator(filters.toArray(new Criteria[0]));
+    }
+
+    /**
+     * Dem sach theo danh muc, gom ca sach cu (@DBRef category): khoa = categoryId, khong co thi category.$id
+     * Duong dan "$category.$id" khong hop le trong aggregation -> doc $id bang $getField (MongoDB 5.0+)
+     */
+    private static AggregationOperation[] categoryCountStages() {
+        Document legacyCategoryId = new Document("$getField",
+                new Document("field", new Document("$literal", "$id")).append("input", "$category"));
+        return new AggregationOperation[]{
+                context -> new Document("$group", new Document("_id",
+                        new Document("$ifNull", List.of("$categoryId", legacyCategoryId)))
+                        .append("count", new Document("$sum", 1))
+                        // $max bo qua null: uu tien ten cua sach dinh dang moi
+                        .append("categoryName", new Document("$max", "$categoryName"))),
+                context -> new Document("$match", new Document("_id", new Document("$ne", null))),
+                context -> new Document("$sort", new Document("count", -1).append("_id", 1))
+        };
+    }
+
+    /**
+     * Danh muc chi co sach cu (khong luu categoryName): lay ten bang 1 query $in
+     */
+    private void populateCategoryNames(List<BrowseResponse.CategoryFacet> categories) {
+        Map<String, List<BrowseResponse.CategoryFacet>> unnamed = categories.stream()
+                .filter(category -> category.getCategoryName() == null)
+                .collect(Collectors.groupingBy(BrowseResponse.CategoryFacet::getCategoryId));
+        if (unnamed.isEmpty()) {
+            return;
+        }
+        for (Category category : categoryRepository.findAllById(unnamed.keySet())) {
+            unnamed.get(category.getId()).forEach(facet -> facet.setCategoryName(category.getName()));
+        }
+    }
+
+    private static BrowseResponse.PriceBucket toPriceBucket(Document doc) {
+        long count = ((Number) doc.get("count")).longValue();
+        Object bucketId = doc.get("_id");
+        if (!(bucketId instanceof Number lowerBound)) {
+            // Bucket mac dinh: gia >= moc cao nhat
+            return BrowseResponse.PriceBucket.builder()
+                    .minPrice(PRICE_BUCKET_BOUNDARIES[PRICE_BUCKET_BOUNDARIES.length - 1])
+                    .count(count)
+                    .build();
+        }
+
+        Double upperBound = null;
+        for (int i = 0; i < PRICE_BUCKET_BOUNDARIES.length - 1; i++) {
+            if (PRICE_BUCKET_BOUNDARIES[i] == lowerBound.doubleValue()) {
+                upperBound = PRICE_BUCKET_BOUNDARIES[i + 1];
+                break;
+            }
+        }
+        return BrowseResponse.PriceBucket.builder()
+                .minPrice(lowerBound.doubleValue())
+                .maxPrice(upperBound)
+                .count(count)
+                .build();
+    }
+
+    /**
+     * Tinh searchTokens tu title + author (bo dau, chu thuong, khong trung lap)
+     */
+    private static List<String> buildSearchTokens(String title, String author) {
+        Set<String> tokens = new LinkedHashSet<>(TextNormalizer.tokenize(title));
+        tokens.addAll(TextNormalizer.tokenize(author));
+        return tokens.stream().limit(MAX_SEARCH_TOKENS).toList();
+    }
+
+    /**
+     * Backfill searchTokens cho sach cu chua co field nay
+     * Xu ly theo batch, chi doc title + author va ghi bang bulk update
+     */
+    public int backfillSearchTokens() {
+        int updatedCount = 0;
+        while (true) {
+            Query query = Query.query(Criteria.where("searchTokens").exists(false))
+                    .limit(SEARCH_TOKENS_BATCH_SIZE);
+            query.fields().include("title", "author");
+            List<Book> batch = mongoTemplate.find(query, Book.class);
+            if (batch.isEmpty()) {
+                if (updatedCount > 0) {
+                    catalogCache.evictAllBooks();
+                    catalogVersion.bump();
+                }
+                return updatedCount;
+            }
+
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class);
+            for (Book book : batch) {
+                bulk.updateOne(Query.query(Criteria.where("id").is(book.getId())),
+                        Update.update("searchTokens", buildSearchTokens(book.getTitle(), book.getAuthor())));
+            }
+            updatedCount += bulk.execute().getModifiedCount();
+        }
+    }
+
+    /**
+     * Goi y title va tac gia theo tien to (search-as-you-type)
+     * GET /books/suggest?q=
+     * Tra loi tu index trong bo nho, khong query MongoDB
+     */
+    public SuggestResponse suggestBooks(String q, int limit) {
+        return bookSuggestIndex.suggest(q, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    /**
+     * Loc sach theo khoang gia / danh muc, gia tang dan (top-K re nhat)
+     * GET /books/filter?price=&minPrice=&categoryId=&limit=
+     * Tra loi tu BookPriceIndex; chi query MongoDB khi index chua nap xong (luc khoi dong)
+     */
+    public List<BookSummary> filterBooksByPrice(Double minPrice, Double maxPrice, String categoryId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        if (bookPriceIndex.isReady()) {
+            return bookPriceIndex.findByPrice(minPrice, maxPrice, categoryId, limit);
+        }
+
+        Criteria criteria = Criteria.where("price");
+        if (minPrice != null) {
+            criteria = criteria.gte(minPrice);
+        }
+        if (maxPrice != null) {
+            criteria = criteria.lte(maxPrice);
+        }
+        if (minPrice == null && maxPrice == null) {
+            criteria = criteria.ne(null);
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by("price").ascending())
+                .limit(limit);
+        if (categoryId != null) {
+            query.addCriteria(Criteria.where("categoryId").is(categoryId));
+        }
+        return findSummaries(query);
+    }
+
+    /**
+     * Nap BookPriceIndex tu collection books (projection BookSummary)
+     * Goi luc khoi dong va sau cac migration ghi hang loat
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildPriceIndex() {
+        bookPriceIndex.rebuild(() -> findSummaries(new Query()));
     }
 
     /**
@@ -110,8 +618,7 @@ public class BookService {
      */
     public Book createBook(BookRequest request) {
         // Tim category
-        Category category = categoryRepository.findById(request.getCategoryId())
-                .orElseThrow(() -> new ResourceNotFoundException("Category", "id", request.getCategoryId()));
+        Category category = findCategory(request.getCategoryId());
 
         Book book = Book.builder()
                 .title(request.getTitle())
@@ -120,9 +627,13 @@ public class BookService {
                 .categoryId(request.getCategoryId())
                 .categoryName(category.getName())
                 .description(request.getDescription())
+                .searchTokens(buildSearchTokens(request.getTitle(), request.getAuthor()))
+                .version(1L)
                 .build();
 
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        onBookChanged(savedBook);
+        return savedBook;
     }
 
     /**
@@ -130,12 +641,15 @@ public class BookService {
      * PUT /books/:id
      */
     public Book updateBook(String id, BookRequest request) {
-        Book book = getBookById(id);
+        // Doc truc tiep tu DB: khong sua object dang nam trong cache
+        Book book = loadBook(id);
+        if (book == null) {
+            throw new ResourceNotFoundException("Book", "id", id);
+        }
 
         // Tim category moi (neu thay doi)
         if (request.getCategoryId() != null) {
-            Category category = categoryRepository.findById(request.getCategoryId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Category", "id", request.getCategoryId()));
+            Category category = findCategory(request.getCategoryId());
             book.setCategoryId(request.getCategoryId());
             book.setCategoryName(category.getName());
         }
@@ -152,8 +666,12 @@ public class BookService {
         if (request.getDescription() != null) {
             book.setDescription(request.getDescription());
         }
+        book.setSearchTokens(buildSearchTokens(book.getTitle(), book.getAuthor()));
+        book.setVersion(nextVersion(book));
 
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        onBookChanged(savedBook);
+        return savedBook;
     }
 
     /**
@@ -163,6 +681,79 @@ public class BookService {
     public void deleteBook(String id) {
         Book book = getBookById(id);
         bookRepository.delete(book);
+        onBookDeleted(id);
+    }
+
+    /**
+     * Xoa tat ca sach thuoc 1 danh muc
+     * Dung khi xoa danh muc (CategoryService.deleteCategory)
+     */
+    public void deleteBooksByCategory(String categoryId) {
+        List<String> bookIds = bookRepository.findByCategoryId(categoryId).stream()
+                .map(Book::getId)
+                .toList();
+        bookRepository.deleteByCategoryId(categoryId);
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        bookIds.forEach(bookId -> {
+            catalogCache.evictBook(bookId);
+            bookSuggestIndex.remove(bookId);
+        });
+        bookPriceIndex.removeAll(bookIds);
+        catalogVersion.bump();
+    }
+
+    /**
+     * Dong bo sach sau khi doi ten danh muc (CategoryService.updateCategory)
+     * - Sach dinh dang moi luu kem categoryName: ghi lai ten moi (va updatedAt) bang 1 updateMulti
+     * - Sach dinh dang cu lay ten qua @DBRef luc nap, khong tim duoc theo categoryId
+     *   -> xoa toan bo cache sach (doi ten danh muc hiem khi xay ra, cache tu nap lai)
+     * - Index gia giu categoryName trong BookSummary -> nap lai
+     */
+    public void onCategoryRenamed(Category category) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("categoryId").is(category.getId())
+                        .and("categoryName").ne(category.getName())),
+                new Update().set("categoryName", category.getName())
+                        .set("updatedAt", LocalDateTime.now())
+                        .inc("version", 1),
+                Book.class);
+        catalogCache.evictAllBooks();
+        rebuildPriceIndex();
+    }
+
+    private static long nextVersion(Book book) {
+        return book.getVersion() != null ? book.getVersion() + 1 : 1;
+    }
+
+    /**
+     * Cap nhat cac index trong bo nho sau khi sach duoc them/sua
+     */
+    private void onBookChanged(Book book) {
+        catalogCache.evictBook(book.getId());
+        bookSuggestIndex.put(book);
+        populateCategoryFields(book);
+        bookPriceIndex.put(BookSummary.builder()
+                .id(book.getId())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .price(book.getPrice())
+                .categoryId(book.getCategoryId())
+                .categoryName(book.getCategoryName())
+                .createdAt(book.getCreatedAt())
+                .build());
+        catalogVersion.bump();
+    }
+
+    /**
+     * Cap nhat cac index trong bo nho sau khi sach bi xoa
+     */
+    private void onBookDeleted(String bookId) {
+        catalogCache.evictBook(bookId);
+        bookSuggestIndex.remove(bookId);
+        bookPriceIndex.remove(bookId);
+        catalogVersion.bump();
     }
 
     /**
@@ -182,12 +773,18 @@ public class BookService {
                     Category defaultCategory = categories.get(0);
                     book.setCategoryId(defaultCategory.getId());
                     book.setCategoryName(defaultCategory.getName());
+                    book.setVersion(nextVersion(book));
                     bookRepository.save(book);
                     migratedCount++;
                 }
             }
         }
 
+        if (migratedCount > 0) {
+            catalogCache.evictAllBooks();
+            rebuildPriceIndex();
+            catalogVersion.bump();
+        }
         return migratedCount;
     }
 }
@@ -0,0 +1,326 @@
+package com.app.dangdoanhtoai2280603283.service;
+
+import com.app.dangdoanhtoai2280603283.dto.SuggestResponse;
+import com.app.dangdoanhtoai2280603283.model.Book;
+import com.app.dangdoanhtoai2280603283.util.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Index goi y tim kiem trong bo nho (search-as-you-type)
+ * - Moi tu (da bo dau, chu thuong) cua title/author duoc index theo tat ca tien to
+ *   den MAX_PREFIX_LENGTH ky tu: prefix -> tap bookId / tap tac gia
+ * - Tra loi bang tra cuu HashMap, khong query MongoDB
+ * - Chap nhan sai 1 ky tu (xoa/them/thay/dao) khi tien to khong khop chinh xac
+ * - Bo nho moi sach bi gioi han: toi da MAX_TOKENS_PER_FIELD tu x MAX_PREFIX_LENGTH tien to
+ *
+ * Xay dung luc khoi dong, BookService cap nhat tung sach khi them/sua/xoa
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookSuggestIndex {
+
+    private static final int MAX_PREFIX_LENGTH = 15;
+    private static final int MAX_TOKENS_PER_FIELD = 8;
+
+    // So ung vien toi da duoc cham diem cho 1 truy van (tien to qua ngan khop rat nhieu sach)
+    private static final int MAX_CANDIDATES = 2000;
+
+    // Tien to ngan hon khong sua loi go (qua nhieu bien the)
+    private static final int MIN_FUZZY_LENGTH = 3;
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+    private final MongoTemplate mongoTemplate;
+
+    // bookId -> title entry
+    private final Map<String, TitleEntry> titles = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> titlePrefixes = new ConcurrentHashMap<>();
+
+    // ten tac gia da chuan hoa -> author entry
+    private final Map<String, AuthorEntry> authors = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> authorPrefixes = new ConcurrentHashMap<>();
+
+    /**
+     * Xay dung index tu collection books (chi doc title, author)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        titles.clear();
+        titlePrefixes.clear();
+        authors.clear();
+        authorPrefixes.clear();
+
+        Query query = new Query();
+        query.fields().include("title", "author");
+        try (Stream<Book> books = mongoTemplate.stream(query, Book.class)) {
+            books.forEach(this::put);
+        }
+        log.info("Book suggest index built: {} titles, {} authors", titles.size(), authors.size());
+    }
+
+    /**
+     * Them hoac cap nhat 1 sach trong index
+     */
+    public synchronized void put(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        remove(book.getId());
+
+        String normalizedTitle = TextNormalizer.normalize(book.getTitle());
+        TitleEntry titleEntry = new TitleEntry(book.getId(), book.getTitle(), book.getAuthor(),
+                normalizedTitle, prefixesOf(normalizedTitle));
+        titles.put(book.getId(), titleEntry);
+        addToPrefixMap(titlePrefixes, titleEntry.prefixes, book.getId());
+
+        String normalizedAuthor = TextNormalizer.normalize(book.getAuthor());
+        if (!normalizedAuthor.isEmpty()) {
+            AuthorEntry authorEntry = authors.computeIfAbsent(normalizedAuthor,
+                    key -> new AuthorEntry(book.getAuthor(), key, prefixesOf(key)));
+            if (authorEntry.books++ == 0) {
+                addToPrefixMap(authorPrefixes, authorEntry.prefixes, normalizedAuthor);
+            }
+        }
+    }
+
+    /**
+     * Xoa 1 sach khoi index
+     */
+    public synchronized void remove(String bookId) {
+        TitleEntry titleEntry = titles.remove(bookId);
+        if (titleEntry == null) {
+            return;
+        }
+        removeFromPrefixMap(titlePrefixes, titleEntry.prefixes, bookId);
+
+        String normalizedAuthor = TextNormalizer.normalize(titleEntry.author);
+        AuthorEntry authorEntry = authors.get(normalizedAuthor);
+        if (authorEntry != null && --authorEntry.books <= 0) {
+            authors.remove(normalizedAuthor);
+            removeFromPrefixMap(authorPrefixes, authorEntry.prefixes, normalizedAuthor);
+        }
+    }
+
+    /**
+     * Goi y toi da limit title va limit tac gia cho tien to q
+     */
+    public SuggestResponse suggest(String q, int limit) {
+        List<String> queryTokens = TextNormalizer.tokenize(q);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return SuggestResponse.builder().query(q).titles(List.of()).authors(List.of()).build();
+        }
+        String normalizedQuery = String.join(" ", queryTokens);
+
+        Match titleMatch = match(titlePrefixes, queryTokens);
+        List<SuggestResponse.TitleSuggestion> titleSuggestions = titleMatch.ids.stream()
+                .map(titles::get)
+                .filter(Objects::nonNull)
+                .sorted(rankBy(normalizedQuery, titleMatch.fuzzy, entry -> entry.normalizedTitle))
+                .limit(limit)
+                .map(entry -> SuggestResponse.TitleSuggestion.builder()
+                        .bookId(entry.bookId)
+                        .title(entry.title)
+                        .author(entry.author)
+                        .build())
+                .toList();
+
+        Match authorMatch = match(authorPrefixes, queryTokens);
+        List<String> authorSuggestions = authorMatch.ids.stream()
+                .map(authors::get)
+                .filter(Objects::nonNull)
+                .sorted(rankBy(normalizedQuery, authorMatch.fuzzy, entry -> entry.normalized))
+                .limit(limit)
+                .map(entry -> entry.name)
+                .toList();
+
+        return SuggestResponse.builder()
+                .query(q)
+                .titles(titleSuggestions)
+                .authors(authorSuggestions)
+                .build();
+    }
+
+    /**
+     * Giao cac tap ung vien cua tung tu trong truy van
+     * Tu nao khong khop chinh xac thi thu cac bien the sai 1 ky tu
+     */
+    private Match match(Map<String, Set<String>> prefixMap, List<String> queryTokens) {
+        boolean fuzzy = false;
+        List<Set<String>> tokenSets = new ArrayList<>();
+
+        for (String token : queryTokens) {
+            String key = truncate(token);
+            Set<String> ids = prefixMap.get(key);
+            if ((ids == null || ids.isEmpty()) && key.length() >= MIN_FUZZY_LENGTH) {
+                ids = fuzzyLookup(prefixMap, key);
+                fuzzy = true;
+            }
+            if (ids == null || ids.isEmpty()) {
+                return new Match(List.of(), fuzzy);
+            }
+            tokenSets.add(ids);
+        }
+
+        tokenSets.sort(Comparator.comparingInt(Set::size));
+        List<String> result = new ArrayList<>();
+        for (String id : tokenSets.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < tokenSets.size() && inAll; i++) {
+                inAll = tokenSets.get(i).contains(id);
+            }
+            if (inAll) {
+                result.add(id);
+                if (result.size() >= MAX_CANDIDATES) {
+                    break;
+                }
+            }
+        }
+        return new Match(result, fuzzy);
+    }
+
+    /**
+     * Hop cac tap ung vien cua moi bien the cach key 1 phep sua
+     */
+    private Set<String> fuzzyLookup(Map<String, Set<String>> prefixMap, String key) {
+        Set<String> ids = new HashSet<>();
+        for (String variant : editVariants(key)) {
+            Set<String> variantIds = prefixMap.get(truncate(variant));
+            if (variantIds != null) {
+                ids.addAll(variantIds);
+                if (ids.size() >= MAX_CANDIDATES) {
+                    break;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static Set<String> editVariants(String word) {
+        Set<String> variants = new LinkedHashSet<>();
+        for (int i = 0; i < word.length(); i++) {
+            variants.add(word.substring(0, i) + word.substring(i + 1));
+            if (i + 1 < word.length()) {
+                variants.add(word.substring(0, i) + word.charAt(i + 1) + word.charAt(i) + word.substring(i + 2));
+            }
+        }
+        for (int i = 0; i <= word.length(); i++) {
+            for (int c = 0; c < ALPHABET.length(); c++) {
+                char ch = ALPHABET.charAt(c);
+                variants.add(word.substring(0, i) + ch + word.substring(i));
+                if (i < word.length() && word.charAt(i) != ch) {
+                    variants.add(word.substring(0, i) + ch + word.substring(i + 1));
+                }
+            }
+        }
+        variants.remove(word);
+        return variants;
+    }
+
+    /**
+     * Thu tu: chuoi bat dau bang truy van, khop chinh xac, khop sai chinh ta; roi den chuoi ngan hon
+     */
+    private static <T> Comparator<T> rankBy(String normalizedQuery, boolean fuzzy, Function<T, String> normalizedText) {
+        return Comparator.<T>comparingInt(entry -> {
+                    if (normalizedText.apply(entry).startsWith(normalizedQuery)) {
+                        return 0;
+                    }
+                    return fuzzy ? 2 : 1;
+                })
+                .thenComparingInt(entry -> normalizedText.apply(entry).length())
+                .thenComparing(normalizedText);
+    }
+
+    private static Set<String> prefixesOf(String normalizedText) {
+        Set<String> prefixes = new HashSet<>();
+        if (normalizedText.isEmpty()) {
+            return prefixes;
+        }
+        String[] tokens = normalizedText.split(" ");
+        for (int t = 0; t < tokens.length && t < MAX_TOKENS_PER_FIELD; t++) {
+            String token = truncate(tokens[t]);
+            for (int length = 1; length <= token.length(); length++) {
+                prefixes.add(token.substring(0, length));
+            }
+        }
+        return prefixes;
+    }
+
+    private static void addToPrefixMap(Map<String, Set<String>> prefixMap, Collection<String> prefixes, String id) {
+        for (String prefix : prefixes) {
+            prefixMap.computeIfAbsent(prefix, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private static void removeFromPrefixMap(Map<String, Set<String>> prefixMap, Collection<String> prefixes, String id) {
+        for (String prefix : prefixes) {
+            prefixMap.computeIfPresent(prefix, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static String truncate(String token) {
+        return token.length() > MAX_PREFIX_LENGTH ? token.substring(0, MAX_PREFIX_LENGTH) : token;
+    }
+
+    private static final class TitleEntry {
+        private final String bookId;
+        private final String title;
+        private final String author;
+        private final String normalizedTitle;
+        private final Set<String> prefixes;
+
+        private TitleEntry(String bookId, String title, String author, String normalizedTitle, Set<String> prefixes) {
+            this.bookId = bookId;
+            this.title = title;
+            this.author = author;
+            this.normalizedTitle = normalizedTitle;
+            this.prefixes = prefixes;
+        }
+    }
+
+    private static final class AuthorEntry {
+        private final String name;
+        private final String normalized;
+        private final Set<String> prefixes;
+        // So sach cua tac gia dang co trong index
+        private int books;
+
+        private AuthorEntry(String name, String normalized, Set<String> prefixes) {
+            this.name = name;
+            this.normalized = normalized;
+            this.prefixes = prefixes;
+        }
+    }
+
+    private static final class Match {
+        private final Collection<String> ids;
+        private final boolean fuzzy;
+
+        private Match(Collection<String> ids, boolean fuzzy) {
+            this.ids = ids;
+            this.fuzzy = fuzzy;
+        }
+    }
+}
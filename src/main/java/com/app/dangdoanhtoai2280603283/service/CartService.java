@@ -1,5 +1,6 @@
 package com.app.dangdoanhtoai2280603283.service;
 
+import com.app.dangdoanhtoai2280603283.dto.CartBatchRequest;
 import com.app.dangdoanhtoai2280603283.dto.CartRequest;
 import com.app.dangdoanhtoai2280603283.dto.CartResponse;
 import com.app.dangdoanhtoai2280603283.exception.BadRequestException;
@@ -7,67 +8,93 @@ import com.app.dangdoanhtoai2280603283.exception.ResourceNotFoundException;
 import com.app.dangdoanhtoai2280603283.model.Book;
 import com.app.dangdoanhtoai2280603283.model.Cart;
 import com.app.dangdoanhtoai2280603283.model.CartItem;
-import com.app.dangdoanhtoai2280603283.repository.BookRepository;
 import com.app.dangdoanhtoai2280603283.repository.CartRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service xu ly Cart (BAI 5)
+ * - Moi thao tac sua gio la 1 findAndModify nguyen tu tren document cart ($inc / $push / $pull),
+ *   khong doc - sua - ghi ca document: 2 tab cung sua gio khong mat cap nhat
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CartService {
 
     private final CartRepository cartRepository;
-    private final BookRepository bookRepository;
+    private final BookService bookService;
+    private final MongoTemplate mongoTemplate;
+    private final CatalogVersion catalogVersion;
+
+    // So lan thu lai POST /cart/batch khi gio bi request khac sua dong thoi
+    private static final int MAX_BATCH_ATTEMPTS = 3;
 
     /**
      * Lay gio hang cua user
      * GET /cart
      */
     public CartResponse getCart(String userId) {
-        Cart cart = getOrCreateCart(userId);
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseGet(() -> emptyCart(userId));
         return buildCartResponse(cart);
     }
 
     /**
      * Them sach vao gio hang
      * POST /cart/add
+     * Sach da co trong gio: $inc so luong (1 round trip)
+     * Sach chua co: $push dong moi, upsert tao cart neu chua co
+     * Dong trong gio luu snapshot title/author/gia tai thoi diem them
      */
     public CartResponse addToCart(String userId, CartRequest request) {
-        // Kiem tra sach ton tai
-        bookRepository.findById(request.getBookId())
-                .orElseThrow(() -> new ResourceNotFoundException("Book", "id", request.getBookId()));
-
-        Cart cart = getOrCreateCart(userId);
-        cart.addItem(request.getBookId(), request.getQuantity());
-        cartRepository.save(cart);
+        // Lay phien ban truoc khi doc sach: neu catalog doi giua chung, snapshot se duoc kiem tra lai
+        long version = catalogVersion.current();
+        // Kiem tra sach ton tai (doc qua cache catalog)
+        Book book = bookService.getBookById(request.getBookId());
+        CartItem line = snapshotOf(book, version);
+        line.setQuantity(request.getQuantity());
 
+        Cart cart = incrementItem(userId, line);
+        if (cart == null) {
+            cart = pushItem(userId, line);
+        }
         return buildCartResponse(cart);
     }
 
     /**
      * Cap nhat so luong sach trong gio
      * PUT /cart/update
+     * So luong <= 0: xoa dong khoi gio
      */
     public CartResponse updateCartItem(String userId, CartRequest request) {
-        Cart cart = getOrCreateCart(userId);
-
-        // Kiem tra item co trong gio khong
-        boolean itemExists = cart.getItems().stream()
-                .anyMatch(item -> item.getBookId().equals(request.getBookId()));
+        if (request.getQuantity() <= 0) {
+            return removeFromCart(userId, request.getBookId());
+        }
 
-        if (!itemExists) {
+        Cart cart = mongoTemplate.findAndModify(
+                itemQuery(userId, request.getBookId()),
+                touch(new Update().set("items.$.quantity", request.getQuantity())),
+                FindAndModifyOptions.options().returnNew(true),
+                Cart.class);
+        if (cart == null) {
             throw new BadRequestException("Sach khong co trong gio hang");
         }
-
-        cart.updateItemQuantity(request.getBookId(), request.getQuantity());
-        cartRepository.save(cart);
-
         return buildCartResponse(cart);
     }
 
@@ -76,57 +103,339 @@ public class CartService {
      * DELETE /cart/remove
      */
     public CartResponse removeFromCart(String userId, String bookId) {
-        Cart cart = getOrCreateCart(userId);
-        cart.removeItem(bookId);
-        cartRepository.save(cart);
+        Cart cart = mongoTemplate.findAndModify(
+                cartQuery(userId),
+                touch(new Update().pull("items", Query.query(Criteria.where("bookId").is(bookId)))),
+                FindAndModifyOptions.options().returnNew(true),
+                Cart.class);
+        deleteIfEmpty(cart);
+        return buildCartResponse(cart != null ? cart : emptyCart(userId));
+    }
+
+    /**
+     * Ap dung nhieu thao tac add / update / remove theo thu tu
+     * POST /cart/batch
+     * - Kiem tra tat ca sach duoc tham chieu bang 1 query (qua cache catalog)
+     * - Tinh gio moi trong bo nho roi ghi 1 lan, chi khi gio khong bi sua tu luc doc (so version);
+     *   bi request khac chen ngang thi doc lai va ap dung lai, toi da MAX_BATCH_ATTEMPTS lan
+     * Thao tac nao khong hop le thi ca batch bi tu choi, gio khong thay doi
+     */
+    public CartResponse applyBatch(String userId, List<CartBatchRequest.Operation> operations) {
+        long version = catalogVersion.current();
+        Map<String, Book> booksById = findReferencedBooks(operations);
+
+        for (int attempt = 0; attempt < MAX_BATCH_ATTEMPTS; attempt++) {
+            Cart current = cartRepository.findByUserId(userId).orElse(null);
+            List<CartItem> items = current != null ? current.getItems() : new ArrayList<>();
+            for (CartBatchRequest.Operation operation : operations) {
+                applyOperation(items, operation, booksById, version);
+            }
+
+            Cart saved = replaceItemsIfUnchanged(userId, current, items);
+            if (saved != null) {
+                deleteIfEmpty(saved);
+                return buildCartResponse(saved);
+            }
+        }
+        throw new BadRequestException("Gio hang dang duoc cap nhat o noi khac, vui long thu lai");
+    }
+
+    /**
+     * Gop gio cua khach (doc tu cookie) vao gio cua user khi dang nhap
+     * Sach da bi xoa khoi catalog duoc bo qua; cac dong con lai duoc gop bang 1 lan ghi (applyBatch)
+     * Gop lay so luong lon hon cua moi dong (khong cong don): gop lai cung 1 cookie
+     * (vd dang nhap lai khi lan truoc chua kip xoa cookie) khong nhan doi so luong
+     * Tra ve false neu khong gop duoc (giu cookie de gop lai lan dang nhap sau), khong lam hong dang nhap
+     */
+    public boolean mergeGuestCart(String userId, List<CartItem> guestItems) {
+        if (guestItems.isEmpty()) {
+            return true;
+        }
+        try {
+            Map<String, Book> booksById = bookService.getBooksByIds(
+                    guestItems.stream().map(CartItem::getBookId).toList());
+            List<CartBatchRequest.Operation> operations = guestItems.stream()
+                    .filter(item -> booksById.containsKey(item.getBookId()))
+                    .map(item -> CartBatchRequest.Operation.builder()
+                            .action(CartBatchRequest.MERGE)
+                            .bookId(item.getBookId())
+                            .quantity(item.getQuantity())
+                            .build())
+                    .toList();
+            if (!operations.isEmpty()) {
+                applyBatch(userId, operations);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Cannot merge guest cart into cart of user {}: {}", userId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Ap dung thao tac len gio cua khach (danh sach doc tu cookie), khong doc / ghi collection carts
+     * /cart/guest/**
+     */
+    public List<CartItem> applyGuestOperations(List<CartItem> items, List<CartBatchRequest.Operation> operations) {
+        long version = catalogVersion.current();
+        Map<String, Book> booksById = findReferencedBooks(operations);
+        for (CartBatchRequest.Operation operation : operations) {
+            applyOperation(items, operation, booksById, version);
+        }
+        return items;
+    }
 
+    /**
+     * Build CartResponse cho gio cua khach (gia / ten sach lay qua cache catalog)
+     */
+    public CartResponse getGuestCart(List<CartItem> items) {
+        Cart cart = emptyCart(null);
+        cart.setItems(items);
         return buildCartResponse(cart);
     }
 
     /**
      * Xoa toan bo gio hang
      * DELETE /cart/clear
+     * Xoa ca document (khong giu lai gio rong trong collection va unique index userId)
      */
     public void clearCart(String userId) {
-        Cart cart = getOrCreateCart(userId);
-        cart.clear();
-        cartRepository.save(cart);
+        mongoTemplate.remove(cartQuery(userId), Cart.class);
+    }
+
+    /**
+     * $inc so luong cua dong co san (toan tu vi tri items.$) va lam moi snapshot
+     * Tra ve null neu chua co cart hoac sach chua nam trong gio
+     */
+    private Cart incrementItem(String userId, CartItem line) {
+        Update update = new Update().inc("items.$.quantity", line.getQuantity())
+                .set("items.$.title", line.getTitle())
+                .set("items.$.author", line.getAuthor())
+                .set("items.$.price", line.getPrice())
+                .set("items.$.catalogVersion", line.getCatalogVersion())
+                .set("items.$.bookUpdatedAt", line.getBookUpdatedAt());
+        return mongoTemplate.findAndModify(
+                itemQuery(userId, line.getBookId()),
+                touch(update),
+                FindAndModifyOptions.options().returnNew(true),
+                Cart.class);
+    }
+
+    /**
+     * $push dong moi vao cart chua co sach nay (upsert: tao cart neu chua co)
+     * Neu 1 request khac vua them cung sach, upsert dung unique index userId -> quay lai $inc
+     */
+    private Cart pushItem(String userId, CartItem line) {
+        Query query = cartQuery(userId).addCriteria(Criteria.where("items.bookId").ne(line.getBookId()));
+        Update update = touch(new Update().push("items", line));
+        try {
+            return mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), Cart.class);
+        } catch (DuplicateKeyException e) {
+            Cart cart = incrementItem(userId, line);
+            if (cart == null) {
+                throw e;
+            }
+            return cart;
+        }
+    }
+
+    /**
+     * Doc tat ca sach duoc add / update tham chieu bang 1 lan (qua cache catalog)
+     * Sach khong ton tai -> 404, ca batch bi tu choi
+     */
+    private Map<String, Book> findReferencedBooks(List<CartBatchRequest.Operation> operations) {
+        Set<String> bookIds = new LinkedHashSet<>();
+        for (CartBatchRequest.Operation operation : operations) {
+            if (!CartBatchRequest.REMOVE.equals(operation.getAction())) {
+                bookIds.add(operation.getBookId());
+            }
+        }
+        Map<String, Book> booksById = bookService.getBooksByIds(bookIds);
+        for (String bookId : bookIds) {
+            if (!booksById.containsKey(bookId)) {
+                throw new ResourceNotFoundException("Book", "id", bookId);
+            }
+        }
+        return booksById;
+    }
+
+    private static void applyOperation(List<CartItem> items, CartBatchRequest.Operation operation,
+                                       Map<String, Book> booksById, long version) {
+        String bookId = operation.getBookId();
+        int quantity = operation.getQuantity() != null ? operation.getQuantity() : 1;
+        CartItem existing = items.stream()
+                .filter(item -> item.getBookId().equals(bookId))
+                .findFirst()
+                .orElse(null);
+
+        switch (operation.getAction()) {
+            case CartBatchRequest.ADD, CartBatchRequest.MERGE -> {
+                if (quantity < 1) {
+                    throw new BadRequestException("So luong phai it nhat la 1");
+                }
+                CartItem line = snapshotOf(booksById.get(bookId), version);
+                if (existing == null) {
+                    line.setQuantity(quantity);
+                    items.add(line);
+                } else {
+                    // add: cong don; merge: lay so luong lon hon (gop lai khong nhan doi)
+                    existing.setQuantity(CartBatchRequest.ADD.equals(operation.getAction())
+                            ? existing.getQuantity() + quantity
+                            : Math.max(existing.getQuantity(), quantity));
+                    refreshSnapshot(existing, line);
+                }
+            }
+            case CartBatchRequest.UPDATE -> {
+                if (existing == null) {
+                    throw new BadRequestException("Sach khong co trong gio hang: " + bookId);
+                }
+                if (quantity <= 0) {
+                    items.remove(existing);
+                } else {
+                    existing.setQuantity(quantity);
+                    refreshSnapshot(existing, snapshotOf(booksById.get(bookId), version));
+                }
+            }
+            case CartBatchRequest.REMOVE -> items.removeIf(item -> item.getBookId().equals(bookId));
+            default -> throw new BadRequestException("Thao tac khong hop le: " + operation.getAction());
+        }
+    }
+
+    private static void refreshSnapshot(CartItem item, CartItem snapshot) {
+        item.setTitle(snapshot.getTitle());
+        item.setAuthor(snapshot.getAuthor());
+        item.setPrice(snapshot.getPrice());
+        item.setCatalogVersion(snapshot.getCatalogVersion());
+        item.setBookUpdatedAt(snapshot.getBookUpdatedAt());
+    }
+
+    /**
+     * Ghi danh sach dong moi neu gio van o trang thai da doc (version khong doi)
+     * Chua co gio: upsert; request khac vua tao gio -> trung unique index userId
+     * Tra ve null khi gio da bi sua trong luc do (can doc lai)
+     */
+    private Cart replaceItemsIfUnchanged(String userId, Cart current, List<CartItem> items) {
+        Query query = cartQuery(userId).addCriteria(versionCriteria(current));
+        try {
+            return mongoTemplate.findAndModify(query, touch(new Update().set("items", items)),
+                    FindAndModifyOptions.options().upsert(current == null).returnNew(true), Cart.class);
+        } catch (DuplicateKeyException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Xoa gio sau khi thanh toan (InvoiceService.checkout)
+     * - Gio khong bi sua tu luc doc (version khong doi): xoa document
+     * - Request khac vua sua gio: chi tru so luong da thanh toan, bo dong het so luong,
+     *   giu lai phan vua them; gio con rong thi xoa
+     */
+    public void removePurchasedItems(Cart purchased) {
+        Query unchanged = cartQuery(purchased.getUserId()).addCriteria(versionCriteria(purchased));
+        if (mongoTemplate.remove(unchanged, Cart.class).getDeletedCount() > 0) {
+            return;
+        }
+
+        Update deduct = touch(new Update());
+        List<CartItem> lines = purchased.getItems();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = "line" + i;
+            deduct.inc("items.$[" + line + "].quantity", -lines.get(i).getQuantity())
+                    .filterArray(Criteria.where(line + ".bookId").is(lines.get(i).getBookId()));
+        }
+        mongoTemplate.updateFirst(cartQuery(purchased.getUserId()), deduct, Cart.class);
+
+        Cart cart = mongoTemplate.findAndModify(
+                cartQuery(purchased.getUserId()),
+                touch(new Update().pull("items", Query.query(Criteria.where("quantity").lte(0)))),
+                FindAndModifyOptions.options().returnNew(true),
+                Cart.class);
+        deleteIfEmpty(cart);
+    }
+
+    /**
+     * Gio vua bi xoa dong cuoi cung -> xoa document
+     * Dieu kien items rong: neu request khac vua them dong thi document duoc giu lai
+     */
+    private void deleteIfEmpty(Cart cart) {
+        if (cart != null && cart.getId() != null && cart.getItems().isEmpty()) {
+            mongoTemplate.remove(cartQuery(cart.getUserId())
+                    .addCriteria(Criteria.where("items").size(0)), Cart.class);
+        }
+    }
+
+    private static Query cartQuery(String userId) {
+        return Query.query(Criteria.where("userId").is(userId));
+    }
+
+    /**
+     * Dieu kien "gio chua bi sua tu luc doc"
+     * Chua co gio, hoac gio cu truoc khi co version -> version chua ton tai (lan ghi dau tien se gan version)
+     */
+    private static Criteria versionCriteria(Cart current) {
+        if (current != null && current.getVersion() != null) {
+            return Criteria.where("version").is(current.getVersion());
+        }
+        return Criteria.where("version").exists(false);
+    }
+
+    private static Query itemQuery(String userId, String bookId) {
+        return Query.query(Criteria.where("userId").is(userId).and("items.bookId").is(bookId));
     }
 
     /**
-     * Lay hoac tao moi cart cho user
+     * Moi lan ghi gio: tang version (dung cho ghi co dieu kien)
+     * @LastModifiedDate khong chay voi update truc tiep -> tu set updatedAt
      */
-    public Cart getOrCreateCart(String userId) {
-        return cartRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    Cart newCart = Cart.builder()
-                            .userId(userId)
-                            .items(new ArrayList<>())
-                            .build();
-                    return cartRepository.save(newCart);
-                });
+    private static Update touch(Update update) {
+        return update.set("updatedAt", LocalDateTime.now()).inc("version", 1);
+    }
+
+    private static CartItem snapshotOf(Book book, long version) {
+        return CartItem.builder()
+                .bookId(book.getId())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .price(book.getPrice())
+                .catalogVersion(version)
+                .bookUpdatedAt(book.getUpdatedAt() != null ? book.getUpdatedAt() : book.getCreatedAt())
+                .build();
+    }
+
+    private static Cart emptyCart(String userId) {
+        return Cart.builder()
+                .userId(userId)
+                .items(new ArrayList<>())
+                .build();
     }
 
     /**
-     * Build CartResponse tu Cart entity
+     * Build CartResponse tu snapshot trong cac dong cua gio, giu nguyen thu tu
+     * Chi cac dong co catalogVersion khac phien ban hien tai moi duoc kiem tra lai
+     * (1 query cho tat ca, qua cache catalog); snapshot moi duoc ghi lai trong 1 update
      */
     private CartResponse buildCartResponse(Cart cart) {
+        Set<String> missingBookIds = revalidateSnapshots(cart);
+
         List<CartResponse.CartItemResponse> itemResponses = new ArrayList<>();
         double totalAmount = 0;
 
         for (CartItem item : cart.getItems()) {
-            Book book = bookRepository.findById(item.getBookId()).orElse(null);
-            if (book != null) {
-                double subtotal = book.getPrice() * item.getQuantity();
-                totalAmount += subtotal;
-
-                itemResponses.add(CartResponse.CartItemResponse.builder()
-                        .bookId(item.getBookId())
-                        .book(book)
-                        .quantity(item.getQuantity())
-                        .subtotal(subtotal)
-                        .build());
+            if (missingBookIds.contains(item.getBookId()) || item.getPrice() == null) {
+                continue;
             }
+            double subtotal = item.getPrice() * item.getQuantity();
+            totalAmount += subtotal;
+
+            itemResponses.add(CartResponse.CartItemResponse.builder()
+                    .bookId(item.getBookId())
+                    .title(item.getTitle())
+                    .author(item.getAuthor())
+                    .price(item.getPrice())
+                    .quantity(item.getQuantity())
+                    .subtotal(subtotal)
+                    .build());
         }
 
         return CartResponse.builder()
@@ -137,4 +446,58 @@ public class CartService {
                 .itemCount(itemResponses.size())
                 .build();
     }
+
+    /**
+     * Lam moi snapshot cua cac dong cu
+     * - catalogVersion (toan cuc) khong doi tu luc chup: bo qua, khong doc sach
+     * - Catalog da doi: doc lai sach cua cac dong do (qua cache catalog) va so updatedAt tung sach;
+     *   chi dong co sach thuc su bi sua moi duoc chup lai. Neu khong dong nao bi sua thi khong ghi DB,
+     *   chi cap nhat catalogVersion trong bo nho
+     * Lan ghi nay la lam moi cache, khong phai thao tac cua user: co y khong set updatedAt / tang version
+     * (khong gia han TTL gio bo quen, khong lam hong ghi co dieu kien cua applyBatch)
+     * Tra ve bookId cua cac sach da bi xoa khoi catalog (bo khoi ket qua; checkout cung bo qua)
+     */
+    private Set<String> revalidateSnapshots(Cart cart) {
+        long version = catalogVersion.current();
+        List<CartItem> stale = cart.getItems().stream()
+                .filter(item -> item.getCatalogVersion() == null || item.getCatalogVersion() != version)
+                .toList();
+        if (stale.isEmpty()) {
+            return Set.of();
+        }
+
+        Map<String, Book> booksById = bookService.getBooksByIds(
+                stale.stream().map(CartItem::getBookId).toList());
+
+        Set<String> missingBookIds = new HashSet<>();
+        Update update = new Update();
+        int refreshed = 0;
+        for (CartItem item : stale) {
+            Book book = booksById.get(item.getBookId());
+            if (book == null) {
+                missingBookIds.add(item.getBookId());
+                continue;
+            }
+            CartItem snapshot = snapshotOf(book, version);
+            boolean bookChanged = item.getBookUpdatedAt() == null
+                    || !item.getBookUpdatedAt().equals(snapshot.getBookUpdatedAt());
+            refreshSnapshot(item, snapshot);
+            if (!bookChanged) {
+                continue;
+            }
+
+            // Chi sua cac field snapshot cua dung dong (arrayFilters), khong dung den quantity
+            String line = "line" + refreshed++;
+            update.set("items.$[" + line + "].title", snapshot.getTitle())
+                    .set("items.$[" + line + "].author", snapshot.getAuthor())
+                    .set("items.$[" + line + "].price", snapshot.getPrice())
+                    .set("items.$[" + line + "].catalogVersion", version)
+                    .set("items.$[" + line + "].bookUpdatedAt", snapshot.getBookUpdatedAt())
+                    .filterArray(Criteria.where(line + ".bookId").is(item.getBookId()));
+        }
+        if (refreshed > 0 && cart.getId() != null) {
+            mongoTemplate.updateFirst(cartQuery(cart.getUserId()), update, Cart.class);
+        }
+        return missingBookIds;
+    }
 }
@@ -0,0 +1,72 @@
+package com.app.dangdoanhtoai2280603283.service;
+
+import com.app.dangdoanhtoai2280603283.config.CartProperties;
+import com.app.dangdoanhtoai2280603283.model.Cart;
+import com.mongodb.client.result.DeleteResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Don dep collection carts
+ * - Gio bi bo quen (updatedAt cu hon cart.abandoned-ttl-days): MongoDB TTL index tu xoa
+ *   (index tao trong MongoIndexInitializer)
+ * - Gio rong con sot lai (du lieu cu truoc khi xoa gio = xoa document): sweeper xoa dinh ky
+ * Moi lan quet ghi log so document da thu hoi; ADMIN goi tay qua POST /admin/carts/sweep
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CartSweeper {
+
+    // Gio vua tao co the chua kip co dong dau tien -> chi xoa gio rong da cu hon khoang nay
+    private static final long EMPTY_CART_GRACE_MINUTES = 10;
+
+    private final MongoTemplate mongoTemplate;
+    private final CartProperties cartProperties;
+
+    @Scheduled(fixedDelayString = "${cart.sweep-interval-ms:3600000}",
+            initialDelayString = "${cart.sweep-interval-ms:3600000}")
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    /**
+     * Xoa gio rong va bao cao ket qua
+     */
+    public Map<String, Object> sweep() {
+        LocalDateTime graceCutoff = LocalDateTime.now().minusMinutes(EMPTY_CART_GRACE_MINUTES);
+        Query emptyCarts = Query.query(new Criteria().andOperator(
+                new Criteria().orOperator(
+                        Criteria.where("items").size(0),
+                        Criteria.where("items").exists(false)),
+                new Criteria().orOperator(
+                        Criteria.where("updatedAt").lt(graceCutoff),
+                        Criteria.where("updatedAt").exists(false))));
+        DeleteResult deleted = mongoTemplate.remove(emptyCarts, Cart.class);
+
+        // Gio da qua han nhung TTL monitor (chay moi ~60 giay) chua xoa
+        LocalDateTime ttlCutoff = LocalDateTime.now().minus(cartProperties.getAbandonedTtl());
+        long pendingExpiry = mongoTemplate.count(
+                Query.query(Criteria.where("updatedAt").lt(ttlCutoff)), Cart.class);
+        long remaining = mongoTemplate.estimatedCount(Cart.class);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("emptyCartsRemoved", deleted.getDeletedCount());
+        report.put("abandonedCartsPendingTtl", pendingExpiry);
+        report.put("cartsRemaining", remaining);
+        report.put("abandonedTtlDays", cartProperties.getAbandonedTtlDays());
+
+        log.info("Cart sweep: removed {} empty carts, {} abandoned carts awaiting TTL expiry, {} carts remaining",
+                deleted.getDeletedCount(), pendingExpiry, remaining);
+        return report;
+    }
+}
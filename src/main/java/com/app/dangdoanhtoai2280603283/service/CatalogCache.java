@@ -0,0 +1,104 @@
+package com.app.dangdoanhtoai2280603283.service;
+
+import com.app.dangdoanhtoai2280603283.model.Book;
+import com.app.dangdoanhtoai2280603283.model.Category;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Cache trong bo nho cho catalog (read-through)
+ * - books: bookId -> Book, categories: categoryId -> Category
+ * - Gioi han kich thuoc + het han sau TTL, co thong ke hit/miss
+ * - Nhieu request cung miss 1 key chi load DB 1 lan (Caffeine gop cac lan load dong thoi)
+ * - BookService / CategoryService xoa entry sau moi lan ghi
+ */
+@Component
+public class CatalogCache {
+
+    private static final long MAX_BOOKS = 10_000;
+    private static final Duration BOOK_TTL = Duration.ofMinutes(10);
+
+    private static final long MAX_CATEGORIES = 1_000;
+    private static final Duration CATEGORY_TTL = Duration.ofMinutes(30);
+
+    private final Cache<String, Book> books = Caffeine.newBuilder()
+            .maximumSize(MAX_BOOKS)
+            .expireAfterWrite(BOOK_TTL)
+            .recordStats()
+            .build();
+
+    private final Cache<String, Category> categories = Caffeine.newBuilder()
+            .maximumSize(MAX_CATEGORIES)
+            .expireAfterWrite(CATEGORY_TTL)
+            .recordStats()
+            .build();
+
+    /**
+     * Lay sach tu cache, miss thi goi loader (tra ve null neu khong ton tai, khong cache)
+     */
+    public Book getBook(String id, Function<String, Book> loader) {
+        return books.get(id, loader);
+    }
+
+    /**
+     * Lay sach neu da co trong cache, khong load DB
+     */
+    public Book getBookIfPresent(String id) {
+        return books.getIfPresent(id);
+    }
+
+    /**
+     * Lay nhieu sach: entry co san lay tu cache, cac id con thieu load bang 1 lan goi loader
+     * Sach khong ton tai khong co trong Map ket qua
+     */
+    public Map<String, Book> getBooks(Collection<String> ids,
+                                      Function<Set<? extends String>, Map<String, Book>> loader) {
+        return books.getAll(ids, loader);
+    }
+
+    public void evictBook(String id) {
+        books.invalidate(id);
+    }
+
+    public void evictAllBooks() {
+        books.invalidateAll();
+    }
+
+    public Category getCategory(String id, Function<String, Category> loader) {
+        return categories.get(id, loader);
+    }
+
+    public void evictCategory(String id) {
+        categories.invalidate(id);
+    }
+
+    /**
+     * Thong ke cache (GET /admin/catalog-cache/stats)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("books", toMap(books.stats(), books.estimatedSize()));
+        stats.put("categories", toMap(categories.stats(), categories.estimatedSize()));
+        return stats;
+    }
+
+    private static Map<String, Object> toMap(CacheStats stats, long size) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", size);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("loadCount", stats.loadCount());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package com.app.dangdoanhtoai2280603283.service;
+
+import com.app.dangdoanhtoai2280603283.model.CatalogState;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Phien ban cua toan bo catalog (sach + danh muc)
+ * - Tang moi khi BookService / CategoryService ghi du lieu
+ * - Dung lam ETag / Last-Modified cho cac trang danh sach (GET /books, /categories)
+ * - Luu trong collection catalog_state (CatalogState): moi instance dung chung, khoi dong lai khong doi ETag
+ * - Doc: giu ban sao trong bo nho, doc lai tu DB toi da moi catalog.version-refresh-ms
+ *   (ghi tren instance nay thay ngay, ghi tren instance khac thay sau toi da khoang do)
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogVersion {
+
+    private static final String STATE_ID = "catalog";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${catalog.version-refresh-ms:1000}")
+    private long refreshMillis;
+
+    private volatile Snapshot snapshot;
+
+    public long current() {
+        return snapshot().version;
+    }
+
+    /**
+     * Thoi diem catalog thay doi lan cuoi (epoch millis)
+     */
+    public long lastModified() {
+        return snapshot().lastModified;
+    }
+
+    public String etag() {
+        return "catalog-" + current();
+    }
+
+    /**
+     * Goi sau moi lan ghi sach / danh muc
+     */
+    public void bump() {
+        CatalogState state = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(STATE_ID)),
+                new Update().inc("version", 1).set("lastModified", System.currentTimeMillis()),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                CatalogState.class);
+        // Trong lock: khong bi 1 lan doc lai dang chay (gia tri cu hon) ghi de
+        synchronized (this) {
+            snapshot = Snapshot.of(state);
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - current.fetchedAt < refreshMillis) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || System.currentTimeMillis() - current.fetchedAt >= refreshMillis) {
+                current = Snapshot.of(mongoTemplate.findById(STATE_ID, CatalogState.class));
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private record Snapshot(long version, long lastModified, long fetchedAt) {
+
+        private static Snapshot of(CatalogState state) {
+            // Chua co document (catalog chua tung ghi): version 0
+            long version = state != null && state.getVersion() != null ? state.getVersion() : 0;
+            long lastModified = state != null && state.getLastModified() != null ? state.getLastModified() : 0;
+            return new Snapshot(version, lastModified, System.currentTimeMillis());
+        }
+    }
+}
@@ -22,6 +22,9 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final BookRepository bookRepository;
+    private final BookService bookService;
+    private final CatalogVersion catalogVersion;
+    private final CatalogCache catalogCache;
 
     /**
      * Lay tat ca danh muc
@@ -38,11 +41,14 @@ public class CategoryService {
     }
 
     /**
-     * Lay chi tiet danh muc theo ID
+     * Lay chi tiet danh muc theo ID (qua CatalogCache)
      */
     public Category getCategoryById(String id) {
-        return categoryRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Category", "id", id));
+        Category category = catalogCache.getCategory(id, key -> categoryRepository.findById(key).orElse(null));
+        if (category == null) {
+            throw new ResourceNotFoundException("Category", "id", id);
+        }
+        return category;
     }
 
     /**
@@ -59,14 +65,18 @@ public class CategoryService {
                 .description(request.getDescription())
                 .build();
 
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        catalogVersion.bump();
+        return savedCategory;
     }
 
     /**
      * Cap nhat danh muc (ADMIN)
      */
     public Category updateCategory(String id, CategoryRequest request) {
-        Category category = getCategoryById(id);
+        // Doc truc tiep tu DB: khong sua object dang nam trong cache
+        Category category = categoryRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Category", "id", id));
 
         // Kiem tra ten moi co trung khong (neu thay doi)
         if (!category.getName().equals(request.getName()) 
@@ -74,10 +84,18 @@ public class CategoryService {
             throw new BadRequestException("Ten danh muc da ton tai");
         }
 
+        boolean renamed = !category.getName().equals(request.getName());
         category.setName(request.getName());
         category.setDescription(request.getDescription());
 
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        catalogCache.evictCategory(id);
+        if (renamed) {
+            // Sach trong cache / index van giu ten cu
+            bookService.onCategoryRenamed(savedCategory);
+        }
+        catalogVersion.bump();
+        return savedCategory;
     }
 
     /**
@@ -91,10 +109,12 @@ public class CategoryService {
         long bookCount = bookRepository.countByCategoryId(id);
         if (bookCount > 0) {
             // Xoa tat ca sach trong danh muc truoc
-            bookRepository.deleteByCategoryId(id);
+            bookService.deleteBooksByCategory(id);
         }
 
         // Sau do xoa danh muc
         categoryRepository.delete(category);
+        catalogCache.evictCategory(id);
+        catalogVersion.bump();
     }
 }
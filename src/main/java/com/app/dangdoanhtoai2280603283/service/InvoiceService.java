@@ -3,27 +3,46 @@ package com.app.dangdoanhtoai2280603283.service;
 import com.app.dangdoanhtoai2280603283.dto.AdminOrderResponse;
 import com.app.dangdoanhtoai2280603283.dto.CheckoutResponse;
 import com.app.dangdoanhtoai2280603283.dto.OrderHistoryResponse;
+import com.app.dangdoanhtoai2280603283.dto.PageResponse;
+import com.app.dangdoanhtoai2280603283.dto.RevenueReportResponse;
 import com.app.dangdoanhtoai2280603283.dto.RevenueResponse;
 import com.app.dangdoanhtoai2280603283.exception.BadRequestException;
 import com.app.dangdoanhtoai2280603283.exception.ResourceNotFoundException;
 import com.app.dangdoanhtoai2280603283.model.*;
 import com.app.dangdoanhtoai2280603283.repository.*;
+import com.app.dangdoanhtoai2280603283.util.PageCursor;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service xu ly Invoice/Checkout (BAI 5)
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class InvoiceService {
@@ -31,8 +50,19 @@ public class InvoiceService {
     private final InvoiceRepository invoiceRepository;
     private final ItemRepository itemRepository;
     private final CartRepository cartRepository;
-    private final BookRepository bookRepository;
+    private final CartService cartService;
+    private final BookService bookService;
+    private final MongoTemplate mongoTemplate;
     private final UserRepository userRepository;
+    private final RevenueRollupService revenueRollupService;
+
+    // So invoice xu ly trong moi batch khi migrate
+    private static final int MIGRATION_BATCH_SIZE = 200;
+
+    private static final String INVOICES_COLLECTION = "invoices";
+
+    // So document moi lan cursor lay tu MongoDB khi export
+    private static final int EXPORT_CURSOR_BATCH_SIZE = 500;
 
     /**
      * Thanh toan gio hang (Checkout)
@@ -41,13 +71,17 @@ public class InvoiceService {
      * LUONG XU LY:
      * 1. Lay gio hang cua user
      * 2. Kiem tra gio hang khong trong
-     * 3. Tinh tong tien
-     * 4. Tao Invoice
-     * 5. Tao Items
-     * 6. Xoa gio hang
+     * 3. Lay tat ca sach trong gio bang 1 query
+     * 4. Tao Invoice (items nhung truc tiep trong invoice)
+     * 5. Xoa gio hang (neu gio bi sua trong luc thanh toan thi chi bo phan da mua)
+     *
+     * Buoc 4-5 chay trong 1 MongoDB transaction (MongoTransactionManager),
+     * so round trip khong phu thuoc vao so dong trong gio
      */
     @Transactional
-    public CheckoutResponse checkout(String userId) {
+    public CheckoutResponse checkout(User user) {
+        String userId = user.getId();
+
         // Lay cart
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new BadRequestException("Gio hang trong"));
@@ -56,18 +90,17 @@ public class InvoiceService {
             throw new BadRequestException("Gio hang trong. Vui long them san pham truoc khi thanh toan.");
         }
 
-        // Lay user
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+        Map<String, Book> booksById = bookService.getBooksByIds(
+                cart.getItems().stream().map(CartItem::getBookId).toList());
 
         // Tinh tong tien va tao danh sach items
         double totalAmount = 0;
         List<CheckoutResponse.ItemResponse> itemResponses = new ArrayList<>();
-        List<Item> items = new ArrayList<>();
+        List<InvoiceItem> items = new ArrayList<>();
         int totalQuantity = 0;
 
         for (CartItem cartItem : cart.getItems()) {
-            Book book = bookRepository.findById(cartItem.getBookId()).orElse(null);
+            Book book = booksById.get(cartItem.getBookId());
             if (book != null) {
                 double subtotal = book.getPrice() * cartItem.getQuantity();
                 totalAmount += subtotal;
@@ -81,9 +114,10 @@ public class InvoiceService {
                         .subtotal(subtotal)
                         .build());
 
-                items.add(Item.builder()
-                        .book(book)
+                items.add(InvoiceItem.builder()
                         .bookId(book.getId())
+                        .bookTitle(book.getTitle())
+                        .bookAuthor(book.getAuthor())
                         .price(book.getPrice())
                         .quantity(cartItem.getQuantity())
                         .build());
@@ -97,22 +131,19 @@ public class InvoiceService {
         // Tao Invoice
         Invoice invoice = Invoice.builder()
                 .userId(userId)
-                .user(user)
+                .username(user.getUsername())
+                .email(user.getEmail())
                 .totalAmount(totalAmount)
                 .status(OrderStatus.PENDING)
+                .items(items)
+                .itemCount(items.size())
+                .totalQuantity(totalQuantity)
                 .build();
 
         Invoice savedInvoice = invoiceRepository.save(invoice);
 
-        // Tao Items
-        for (Item item : items) {
-            item.setInvoiceId(savedInvoice.getId());
-            itemRepository.save(item);
-        }
-
-        // Xoa gio hang
-        cart.clear();
-        cartRepository.save(cart);
+        // Xoa gio hang da thanh toan (co dieu kien version, giu lai dong vua duoc them)
+        cartService.removePurchasedItems(cart);
 
         // Build response
         return CheckoutResponse.builder()
@@ -131,7 +162,19 @@ public class InvoiceService {
      * GET /invoices
      */
     public Page<Invoice> getInvoicesByUser(String userId, Pageable pageable) {
-        return invoiceRepository.findByUserId(userId, pageable);
+        return findOrderSummaries(Criteria.where("userId").is(userId), pageable);
+    }
+
+    /**
+     * Lay lich su hoa don cua user theo cursor (moi nhat truoc)
+     * GET /invoices?cursor=
+     */
+    public PageResponse<List<Invoice>> getInvoicesByUserCursor(
+            String userId, String cursor, int limit, boolean includeTotal) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        List<Invoice> invoices = findOrderSummariesAfter(criteria, cursor, limit);
+        return PageCursor.toPageResponse(invoices, limit, Invoice::getCreatedAt, Invoice::getId,
+                invoice -> invoice, countSupplier(criteria, includeTotal));
     }
 
     /**
@@ -140,20 +183,10 @@ public class InvoiceService {
      */
     public OrderHistoryResponse getOrderHistory(String userId, int page, int limit) {
         Pageable pageable = PageRequest.of(page, limit, Sort.by("createdAt").descending());
-        Page<Invoice> invoicePage = invoiceRepository.findByUserId(userId, pageable);
+        Page<Invoice> invoicePage = findOrderSummaries(Criteria.where("userId").is(userId), pageable);
 
         List<OrderHistoryResponse.OrderSummary> orders = invoicePage.getContent().stream()
-                .map(invoice -> {
-                    List<Item> items = itemRepository.findByInvoiceId(invoice.getId());
-                    return OrderHistoryResponse.OrderSummary.builder()
-                            .orderId(invoice.getId())
-                            .orderNumber(generateOrderNumber(invoice.getId(), invoice.getCreatedAt()))
-                            .createdAt(invoice.getCreatedAt())
-                            .totalAmount(invoice.getTotalAmount())
-                            .status(invoice.getStatus() != null ? invoice.getStatus().name() : "PENDING")
-                            .itemCount(items.size())
-                            .build();
-                })
+                .map(this::toOrderSummary)
                 .toList();
 
         return OrderHistoryResponse.builder()
@@ -165,26 +198,56 @@ public class InvoiceService {
                 .build();
     }
 
+    /**
+     * Lay lich su don hang theo cursor (USER)
+     * GET /orders/history?cursor=
+     */
+    public OrderHistoryResponse getOrderHistoryByCursor(
+            String userId, String cursor, int limit, boolean includeTotal) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        PageResponse<List<OrderHistoryResponse.OrderSummary>> orderPage = PageCursor.toPageResponse(
+                findOrderSummariesAfter(criteria, cursor, limit), limit,
+                Invoice::getCreatedAt, Invoice::getId, this::toOrderSummary,
+                countSupplier(criteria, includeTotal));
+
+        return OrderHistoryResponse.builder()
+                .orders(orderPage.getContent())
+                .total(orderPage.getTotal() != null ? orderPage.getTotal().intValue() : null)
+                .limit(limit)
+                .totalPages(orderPage.getTotalPages())
+                .nextCursor(orderPage.getNextCursor())
+                .hasNext(orderPage.getHasNext())
+                .build();
+    }
+
+    private OrderHistoryResponse.OrderSummary toOrderSummary(Invoice invoice) {
+        return OrderHistoryResponse.OrderSummary.builder()
+                .orderId(invoice.getId())
+                .orderNumber(generateOrderNumber(invoice.getId(), invoice.getCreatedAt()))
+                .createdAt(invoice.getCreatedAt())
+                .totalAmount(invoice.getTotalAmount())
+                .status(invoice.getStatus() != null ? invoice.getStatus().name() : "PENDING")
+                .itemCount(invoice.getItemCount())
+                .build();
+    }
+
     /**
      * Lay chi tiet don hang
      * GET /orders/:id
      */
     public OrderHistoryResponse.OrderDetail getOrderDetail(String orderId, String userId) {
         Invoice invoice = getInvoiceById(orderId, userId, false);
-        List<Item> items = itemRepository.findByInvoiceId(orderId);
+        List<InvoiceItem> items = getInvoiceLineItems(invoice);
 
         List<OrderHistoryResponse.OrderItemResponse> itemResponses = items.stream()
-                .map(item -> {
-                    Book book = bookRepository.findById(item.getBookId()).orElse(null);
-                    return OrderHistoryResponse.OrderItemResponse.builder()
-                            .bookId(item.getBookId())
-                            .bookTitle(book != null ? book.getTitle() : "Unknown")
-                            .bookAuthor(book != null ? book.getAuthor() : "Unknown")
-                            .price(item.getPrice())
-                            .quantity(item.getQuantity())
-                            .subtotal(item.getPrice() * item.getQuantity())
-                            .build();
-                })
+                .map(item -> OrderHistoryResponse.OrderItemResponse.builder()
+                        .bookId(item.getBookId())
+                        .bookTitle(item.getBookTitle() != null ? item.getBookTitle() : "Unknown")
+                        .bookAuthor(item.getBookAuthor() != null ? item.getBookAuthor() : "Unknown")
+                        .price(item.getPrice())
+                        .quantity(item.getQuantity())
+                        .subtotal(item.getSubtotal())
+                        .build())
                 .toList();
 
         return OrderHistoryResponse.OrderDetail.builder()
@@ -226,9 +289,222 @@ public class InvoiceService {
 
     /**
      * Lay chi tiet items cua hoa don
+     * Uu tien items nhung trong invoice, neu invoice chua duoc migrate
+     * thi doc tu collection items cu
+     */
+    public List<InvoiceItem> getInvoiceLineItems(Invoice invoice) {
+        if (invoice.getItems() != null) {
+            return invoice.getItems();
+        }
+        return toInvoiceItems(itemRepository.findByInvoiceId(invoice.getId()));
+    }
+
+    /**
+     * Chuyen Item (collection items cu) sang InvoiceItem
+     * Lay ten sach va tac gia bang 1 query cho tat ca items
+     */
+    private List<InvoiceItem> toInvoiceItems(List<Item> items) {
+        Map<String, Book> booksById = bookService.getBooksByIds(
+                items.stream().map(Item::getBookId).toList());
+        return toInvoiceItems(items, booksById);
+    }
+
+    private List<InvoiceItem> toInvoiceItems(List<Item> items, Map<String, Book> booksById) {
+        return items.stream()
+                .map(item -> {
+                    Book book = booksById.get(item.getBookId());
+                    return InvoiceItem.builder()
+                            .bookId(item.getBookId())
+                            .bookTitle(book != null ? book.getTitle() : null)
+                            .bookAuthor(book != null ? book.getAuthor() : null)
+                            .price(item.getPrice())
+                            .quantity(item.getQuantity())
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Migrate items tu collection items vao trong Invoice
+     * Xu ly theo batch, chi lay cac invoice chua co field items
+     * nen co the chay lai (resume) neu bi dung giua chung
+     */
+    public int migrateItemsIntoInvoices() {
+        int migratedCount = 0;
+
+        while (true) {
+            List<Invoice> batch = invoiceRepository.findWithoutEmbeddedItems(
+                    PageRequest.of(0, MIGRATION_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<String> invoiceIds = batch.stream().map(Invoice::getId).toList();
+            List<Item> batchItems = itemRepository.findByInvoiceIdIn(invoiceIds);
+            Map<String, List<Item>> itemsByInvoice = batchItems.stream()
+                    .collect(Collectors.groupingBy(Item::getInvoiceId));
+            Map<String, Book> booksById = bookService.getBooksByIds(
+                    batchItems.stream().map(Item::getBookId).toList());
+
+            for (Invoice invoice : batch) {
+                List<InvoiceItem> items = toInvoiceItems(
+                        itemsByInvoice.getOrDefault(invoice.getId(), List.of()), booksById);
+
+                // Chi set khi field items van chua ton tai (tranh ghi de khi chay song song)
+                mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(invoice.getId()).and("items").exists(false)),
+                        Update.update("items", items)
+                                .set("itemCount", items.size())
+                                .set("totalQuantity", sumQuantity(items)),
+                        Invoice.class);
+                migratedCount++;
+            }
+        }
+
+        return migratedCount;
+    }
+
+    /**
+     * Migrate thong tin nguoi mua vao Invoice
+     * - Set username, email tu user tuong ung
+     * - Xoa field user (@DBRef cu)
+     * Chi xu ly invoice chua co field username nen co the chay lai
+     */
+    public int migrateInvoiceBuyers() {
+        int migratedCount = 0;
+
+        while (true) {
+            Query query = Query.query(Criteria.where("username").exists(false)).limit(MIGRATION_BATCH_SIZE);
+            query.fields().include("userId");
+            List<Document> batch = mongoTemplate.find(query, Document.class, INVOICES_COLLECTION);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            Set<String> userIds = batch.stream()
+                    .map(doc -> doc.getString("userId"))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            Map<String, User> usersById = new HashMap<>();
+            userRepository.findAllById(userIds).forEach(user -> usersById.put(user.getId(), user));
+
+            for (Document doc : batch) {
+                User user = usersById.get(doc.getString("userId"));
+                // User da bi xoa: van set username = null de khong xu ly lai
+                Update update = new Update()
+                        .set("username", user != null ? user.getUsername() : null)
+                        .set("email", user != null ? user.getEmail() : null)
+                        .unset("user");
+                mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(doc.get("_id"))),
+                        update,
+                        INVOICES_COLLECTION);
+                migratedCount++;
+            }
+        }
+
+        return migratedCount;
+    }
+
+    /**
+     * Backfill itemCount khi khoi dong
+     * Danh sach don hang (admin, lich su, export CSV) chi doc itemCount, khong tinh lai tung dong;
+     * invoice chua backfill tra ve itemCount = null cho den khi job nay chay xong
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillInvoiceCountersOnStartup() {
+        int updatedCount = backfillInvoiceCounters();
+        if (updatedCount > 0) {
+            log.info("Backfilled itemCount/totalQuantity for {} invoices", updatedCount);
+        }
+    }
+
+    /**
+     * Backfill itemCount va totalQuantity cho cac invoice cu
+     * Xu ly theo batch, chi lay invoice chua co itemCount nen co the chay lai
+     */
+    public int backfillInvoiceCounters() {
+        int updatedCount = 0;
+
+        while (true) {
+            List<Invoice> batch = invoiceRepository.findWithoutItemCount(
+                    PageRequest.of(0, MIGRATION_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            for (Invoice invoice : batch) {
+                List<InvoiceItem> items = getInvoiceLineItems(invoice);
+                mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(invoice.getId())),
+                        Update.update("itemCount", items.size())
+                                .set("totalQuantity", sumQuantity(items)),
+                        Invoice.class);
+                updatedCount++;
+            }
+        }
+
+        return updatedCount;
+    }
+
+    private int sumQuantity(List<InvoiceItem> items) {
+        return items.stream()
+                .mapToInt(item -> item.getQuantity() != null ? item.getQuantity() : 0)
+                .sum();
+    }
+
+    /**
+     * Lay 1 trang invoice cho cac man hinh danh sach
+     * Khong doc field items (danh sach chi can itemCount/totalQuantity)
+     */
+    private Page<Invoice> findOrderSummaries(Criteria criteria, Pageable pageable) {
+        Query query = Query.query(criteria).with(pageable);
+        query.fields().exclude("items");
+
+        List<Invoice> invoices = mongoTemplate.find(query, Invoice.class);
+        return PageableExecutionUtils.getPage(invoices, pageable,
+                () -> mongoTemplate.count(Query.query(criteria), Invoice.class));
+    }
+
+    /**
+     * Lay trang invoice tiep theo sau cursor (createdAt giam dan, _id giam dan)
+     * Dung range predicate tren index thay vi skip; tra ve toi da limit + 1 phan tu
      */
-    public List<Item> getInvoiceItems(String invoiceId) {
-        return itemRepository.findByInvoiceId(invoiceId);
+    private List<Invoice> findOrderSummariesAfter(Criteria criteria, String cursor, int limit) {
+        Query query = PageCursor.seekQuery(criteria, cursor, Sort.Direction.DESC, limit);
+        query.fields().exclude("items");
+        return mongoTemplate.find(query, Invoice.class);
+    }
+
+    private LongSupplier countSupplier(Criteria criteria, boolean includeTotal) {
+        return includeTotal ? () -> mongoTemplate.count(Query.query(criteria), Invoice.class) : null;
+    }
+
+    /**
+     * Dieu kien loc don hang theo trang thai va khoang thoi gian (ADMIN)
+     */
+    private Criteria buildOrderCriteria(String status, LocalDateTime fromDate, LocalDateTime toDate) {
+        Criteria criteria = new Criteria();
+        if (status != null) {
+            criteria.and("status").is(OrderStatus.valueOf(status.toUpperCase()));
+        }
+        if (fromDate != null && toDate != null) {
+            criteria.and("createdAt").gte(fromDate).lte(toDate);
+        }
+        return criteria;
+    }
+
+    private AdminOrderResponse.InvoiceResponse toInvoiceResponse(Invoice invoice) {
+        return AdminOrderResponse.InvoiceResponse.builder()
+                .orderId(invoice.getId())
+                .orderNumber(generateOrderNumber(invoice.getId(), invoice.getCreatedAt()))
+                .username(invoice.getUsername() != null ? invoice.getUsername() : "Unknown")
+                .email(invoice.getEmail() != null ? invoice.getEmail() : "Unknown")
+                .createdAt(invoice.getCreatedAt())
+                .totalAmount(invoice.getTotalAmount())
+                .status(invoice.getStatus() != null ? invoice.getStatus().name() : "PENDING")
+                .itemCount(invoice.getItemCount())
+                .build();
     }
 
     /**
@@ -236,7 +512,7 @@ public class InvoiceService {
      * GET /invoices/all
      */
     public Page<Invoice> getAllInvoices(Pageable pageable) {
-        return invoiceRepository.findAll(pageable);
+        return findOrderSummaries(new Criteria(), pageable);
     }
 
     // ===== ADMIN METHODS =====
@@ -251,33 +527,28 @@ public class InvoiceService {
             LocalDateTime toDate,
             Pageable pageable) {
 
-        Page<Invoice> invoicePage;
-
-        if (status != null && fromDate != null && toDate != null) {
-            OrderStatus orderStatus = OrderStatus.valueOf(status.toUpperCase());
-            invoicePage = invoiceRepository.findByStatusAndCreatedAtBetween(orderStatus, fromDate, toDate, pageable);
-        } else if (status != null) {
-            OrderStatus orderStatus = OrderStatus.valueOf(status.toUpperCase());
-            invoicePage = invoiceRepository.findByStatus(orderStatus, pageable);
-        } else if (fromDate != null && toDate != null) {
-            invoicePage = invoiceRepository.findByCreatedAtBetween(fromDate, toDate, pageable);
-        } else {
-            invoicePage = invoiceRepository.findAll(pageable);
-        }
+        Page<Invoice> invoicePage = findOrderSummaries(
+                buildOrderCriteria(status, fromDate, toDate), pageable);
+
+        return invoicePage.map(this::toInvoiceResponse);
+    }
 
-        return invoicePage.map(invoice -> {
-            List<Item> items = itemRepository.findByInvoiceId(invoice.getId());
-            return AdminOrderResponse.InvoiceResponse.builder()
-                    .orderId(invoice.getId())
-                    .orderNumber(generateOrderNumber(invoice.getId(), invoice.getCreatedAt()))
-                    .username(invoice.getUser() != null ? invoice.getUser().getUsername() : "Unknown")
-                    .email(invoice.getUser() != null ? invoice.getUser().getEmail() : "Unknown")
-                    .createdAt(invoice.getCreatedAt())
-                    .totalAmount(invoice.getTotalAmount())
-                    .status(invoice.getStatus() != null ? invoice.getStatus().name() : "PENDING")
-                    .itemCount(items.size())
-                    .build();
-        });
+    /**
+     * Lay danh sach don hang cho ADMIN theo cursor
+     * GET /admin/orders?cursor=
+     */
+    public PageResponse<List<AdminOrderResponse.InvoiceResponse>> getAdminOrdersByCursor(
+            String status,
+            LocalDateTime fromDate,
+            LocalDateTime toDate,
+            String cursor,
+            int limit,
+            boolean includeTotal) {
+
+        Criteria criteria = buildOrderCriteria(status, fromDate, toDate);
+        return PageCursor.toPageResponse(findOrderSummariesAfter(criteria, cursor, limit), limit,
+                Invoice::getCreatedAt, Invoice::getId, this::toInvoiceResponse,
+                countSupplier(criteria, includeTotal));
     }
 
     /**
@@ -288,27 +559,24 @@ public class InvoiceService {
         Invoice invoice = invoiceRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Invoice", "id", orderId));
 
-        List<Item> items = itemRepository.findByInvoiceId(orderId);
+        List<InvoiceItem> items = getInvoiceLineItems(invoice);
 
         List<AdminOrderResponse.OrderItemResponse> itemResponses = items.stream()
-                .map(item -> {
-                    Book book = bookRepository.findById(item.getBookId()).orElse(null);
-                    return AdminOrderResponse.OrderItemResponse.builder()
-                            .bookId(item.getBookId())
-                            .bookTitle(book != null ? book.getTitle() : "Unknown")
-                            .bookAuthor(book != null ? book.getAuthor() : "Unknown")
-                            .price(item.getPrice())
-                            .quantity(item.getQuantity())
-                            .subtotal(item.getPrice() * item.getQuantity())
-                            .build();
-                })
+                .map(item -> AdminOrderResponse.OrderItemResponse.builder()
+                        .bookId(item.getBookId())
+                        .bookTitle(item.getBookTitle() != null ? item.getBookTitle() : "Unknown")
+                        .bookAuthor(item.getBookAuthor() != null ? item.getBookAuthor() : "Unknown")
+                        .price(item.getPrice())
+                        .quantity(item.getQuantity())
+                        .subtotal(item.getSubtotal())
+                        .build())
                 .collect(Collectors.toList());
 
         return AdminOrderResponse.OrderDetailResponse.builder()
                 .orderId(invoice.getId())
                 .orderNumber(generateOrderNumber(invoice.getId(), invoice.getCreatedAt()))
-                .username(invoice.getUser() != null ? invoice.getUser().getUsername() : "Unknown")
-                .email(invoice.getUser() != null ? invoice.getUser().getEmail() : "Unknown")
+                .username(invoice.getUsername() != null ? invoice.getUsername() : "Unknown")
+                .email(invoice.getEmail() != null ? invoice.getEmail() : "Unknown")
                 .createdAt(invoice.getCreatedAt())
                 .totalAmount(invoice.getTotalAmount())
                 .status(invoice.getStatus() != null ? invoice.getStatus().name() : "PENDING")
@@ -319,64 +587,56 @@ public class InvoiceService {
     /**
      * Cap nhat trang thai don hang
      * PUT /admin/orders/:orderId/status
+     * Cap nhat revenue_daily trong cung transaction neu don vao/ra COMPLETED
      */
+    @Transactional
     public Invoice updateOrderStatus(String orderId, String status) {
         Invoice invoice = invoiceRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Invoice", "id", orderId));
 
+        OrderStatus oldStatus = invoice.getStatus();
         OrderStatus orderStatus = OrderStatus.valueOf(status.toUpperCase());
         invoice.setStatus(orderStatus);
 
-        return invoiceRepository.save(invoice);
+        Invoice savedInvoice = invoiceRepository.save(invoice);
+        revenueRollupService.onStatusChanged(savedInvoice, oldStatus, orderStatus);
+        return savedInvoice;
     }
 
     /**
-     * Lay danh sach don hang de export
+     * Stream danh sach don hang de export
      * GET /admin/orders/export
+     *
+     * Doc bang server-side cursor, khong load toan bo vao bo nho.
+     * Stream phai duoc dong sau khi dung (try-with-resources) de giai phong cursor
      */
-    public List<AdminOrderResponse.InvoiceResponse> getOrdersForExport(
+    public Stream<AdminOrderResponse.InvoiceResponse> streamOrdersForExport(
             String status,
             LocalDateTime fromDate,
             LocalDateTime toDate) {
 
-        List<Invoice> invoices;
-
-        if (status != null && fromDate != null && toDate != null) {
-            OrderStatus orderStatus = OrderStatus.valueOf(status.toUpperCase());
-            invoices = invoiceRepository.findByStatusAndCreatedAtBetween(orderStatus, fromDate, toDate);
-        } else if (status != null) {
-            OrderStatus orderStatus = OrderStatus.valueOf(status.toUpperCase());
-            invoices = invoiceRepository.findByStatus(orderStatus, Pageable.unpaged()).getContent();
-        } else if (fromDate != null && toDate != null) {
-            invoices = invoiceRepository.findByCreatedAtBetween(fromDate, toDate, Pageable.unpaged()).getContent();
-        } else {
-            invoices = invoiceRepository.findAll();
-        }
+        Query query = Query.query(buildOrderCriteria(status, fromDate, toDate))
+                .cursorBatchSize(EXPORT_CURSOR_BATCH_SIZE);
+        query.fields().exclude("items");
 
-        return invoices.stream()
-                .map(invoice -> {
-                    List<Item> items = itemRepository.findByInvoiceId(invoice.getId());
-                    return AdminOrderResponse.InvoiceResponse.builder()
-                            .orderId(invoice.getId())
-                            .orderNumber(generateOrderNumber(invoice.getId(), invoice.getCreatedAt()))
-                            .username(invoice.getUser() != null ? invoice.getUser().getUsername() : "Unknown")
-                            .email(invoice.getUser() != null ? invoice.getUser().getEmail() : "Unknown")
-                            .createdAt(invoice.getCreatedAt())
-                            .totalAmount(invoice.getTotalAmount())
-                            .status(invoice.getStatus() != null ? invoice.getStatus().name() : "PENDING")
-                            .itemCount(items.size())
-                            .build();
-                })
-                .collect(Collectors.toList());
+        return mongoTemplate.stream(query, Invoice.class)
+                .map(this::toInvoiceResponse);
     }
 
     /**
      * Thong ke doanh thu theo thang
      * GET /admin/revenue/monthly
+     *
+     * Doc tu bang tong hop revenue_daily, thang khong co don hang tra ve 0
      */
     public RevenueResponse getMonthlyRevenue(Integer year) {
         int currentYear = year != null ? year : LocalDateTime.now().getYear();
 
+        LocalDateTime startDate = LocalDateTime.of(currentYear, 1, 1, 0, 0);
+        Map<String, RevenueReportResponse.RevenueBucket> bucketsByPeriod = revenueRollupService.getBuckets(
+                RevenueGranularity.MONTH, startDate, startDate.plusYears(1)).stream()
+                .collect(Collectors.toMap(RevenueReportResponse.RevenueBucket::getPeriod, bucket -> bucket));
+
         List<RevenueResponse.MonthlyRevenue> monthlyRevenues = new ArrayList<>();
         double totalRevenue = 0;
 
@@ -384,22 +644,17 @@ public class InvoiceService {
                 "July", "August", "September", "October", "November", "December"};
 
         for (int month = 1; month <= 12; month++) {
-            LocalDateTime startDate = LocalDateTime.of(currentYear, month, 1, 0, 0);
-            LocalDateTime endDate = startDate.plusMonths(1).minusSeconds(1);
-
-            List<Invoice> invoices = invoiceRepository.findByStatusAndCreatedAtBetween(
-                    OrderStatus.COMPLETED, startDate, endDate);
+            RevenueReportResponse.RevenueBucket bucket =
+                    bucketsByPeriod.get(String.format("%d-%02d", currentYear, month));
 
-            double monthlyRevenue = invoices.stream()
-                    .mapToDouble(Invoice::getTotalAmount)
-                    .sum();
+            double monthlyRevenue = bucket != null ? bucket.getRevenue() : 0;
             totalRevenue += monthlyRevenue;
 
             monthlyRevenues.add(RevenueResponse.MonthlyRevenue.builder()
                     .month(month)
                     .monthName(monthNames[month - 1])
                     .revenue(monthlyRevenue)
-                    .orderCount(invoices.size())
+                    .orderCount(bucket != null ? bucket.getOrderCount() : 0)
                     .build());
         }
 
@@ -410,10 +665,36 @@ public class InvoiceService {
                 .build();
     }
 
+    /**
+     * Thong ke doanh thu theo ngay/tuan/thang/nam
+     * GET /admin/revenue
+     *
+     * Khoang thoi gian [fromDate, toDate), chi tra ve cac ky co don hang
+     * Doc tu bang tong hop revenue_daily (O(so ngay), khong quet invoices)
+     */
+    public RevenueReportResponse getRevenueReport(
+            RevenueGranularity granularity,
+            LocalDateTime fromDate,
+            LocalDateTime toDate) {
+
+        List<RevenueReportResponse.RevenueBucket> buckets =
+                revenueRollupService.getBuckets(granularity, fromDate, toDate);
+
+        return RevenueReportResponse.builder()
+                .granularity(granularity.name())
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .buckets(buckets)
+                .totalRevenue(buckets.stream().mapToDouble(RevenueReportResponse.RevenueBucket::getRevenue).sum())
+                .totalOrders(buckets.stream().mapToInt(RevenueReportResponse.RevenueBucket::getOrderCount).sum())
+                .build();
+    }
+
     /**
      * User danh dau don hang la da nhan duoc
      * Cap nhat trang thai thanh COMPLETED
      */
+    @Transactional
     public void markOrderAsReceived(String orderId, String userId) {
         Invoice invoice = invoiceRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Invoice", "id", orderId));
@@ -433,7 +714,9 @@ public class InvoiceService {
         }
 
         // Cập nhật trạng thái thành COMPLETED
+        OrderStatus oldStatus = invoice.getStatus();
         invoice.setStatus(OrderStatus.COMPLETED);
         invoiceRepository.save(invoice);
+        revenueRollupService.onStatusChanged(invoice, oldStatus, OrderStatus.COMPLETED);
     }
 }
@@ -77,6 +77,7 @@ public class OAuth2Service {
         }
 
         return Map.of(
+                "user", user,
                 "userId", user.getId(),
                 "email", user.getEmail(),
                 "username", user.getUsername(),
@@ -0,0 +1,174 @@
+package com.app.dangdoanhtoai2280603283.service;
+
+import com.app.dangdoanhtoai2280603283.dto.RevenueReportResponse;
+import com.app.dangdoanhtoai2280603283.model.Invoice;
+import com.app.dangdoanhtoai2280603283.model.OrderStatus;
+import com.app.dangdoanhtoai2280603283.model.RevenueDaily;
+import com.app.dangdoanhtoai2280603283.model.RevenueGranularity;
+import com.app.dangdoanhtoai2280603283.repository.RevenueDailyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service quan ly bang tong hop doanh thu theo ngay (revenue_daily)
+ * - Cap nhat $inc khi don hang chuyen vao/ra trang thai COMPLETED
+ * - Doc doanh thu theo ngay/tuan/thang/nam tu cac document ngay (O(so ngay))
+ * - Rebuild toan bo tu invoices de backfill hoac sua sai lech
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RevenueRollupService {
+
+    private final RevenueDailyRepository revenueDailyRepository;
+    private final MongoTemplate mongoTemplate;
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    /**
+     * Cap nhat rollup khi trang thai don hang thay doi
+     * Goi trong cung transaction voi lenh cap nhat invoice
+     */
+    public void onStatusChanged(Invoice invoice, OrderStatus oldStatus, OrderStatus newStatus) {
+        boolean wasCompleted = oldStatus == OrderStatus.COMPLETED;
+        boolean isCompleted = newStatus == OrderStatus.COMPLETED;
+        if (wasCompleted == isCompleted || invoice.getCreatedAt() == null) {
+            return;
+        }
+
+        int sign = isCompleted ? 1 : -1;
+        double amount = invoice.getTotalAmount() != null ? invoice.getTotalAmount() : 0;
+
+        mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(invoice.getCreatedAt().toLocalDate().format(DAY_FORMAT))),
+                new Update()
+                        .inc("revenue", sign * amount)
+                        .inc("orderCount", sign),
+                FindAndModifyOptions.options().upsert(true),
+                RevenueDaily.class);
+    }
+
+    /**
+     * Lay doanh thu theo ky trong khoang [fromDate, toDate)
+     * Do chi tiet nho nhat la 1 ngay, chi tra ve cac ky co don hang
+     */
+    public List<RevenueReportResponse.RevenueBucket> getBuckets(
+            RevenueGranularity granularity,
+            LocalDateTime fromDate,
+            LocalDateTime toDate) {
+
+        LocalDate fromDay = fromDate.toLocalDate();
+        LocalDate toDay = toDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? toDate.toLocalDate()
+                : toDate.toLocalDate().plusDays(1);
+
+        List<RevenueDaily> days = revenueDailyRepository.findByIdGreaterThanEqualAndIdLessThan(
+                fromDay.format(DAY_FORMAT), toDay.format(DAY_FORMAT), Sort.by("id"));
+
+        Map<String, RevenueReportResponse.RevenueBucket> buckets = new TreeMap<>();
+        for (RevenueDaily day : days) {
+            if (day.getOrderCount() == null || day.getOrderCount() <= 0) {
+                continue;
+            }
+
+            String period = toPeriod(LocalDate.parse(day.getId(), DAY_FORMAT), granularity);
+            RevenueReportResponse.RevenueBucket bucket = buckets.computeIfAbsent(period,
+                    key -> RevenueReportResponse.RevenueBucket.builder()
+                            .period(key)
+                            .revenue(0.0)
+                            .orderCount(0)
+                            .build());
+            bucket.setRevenue(bucket.getRevenue() + day.getRevenue());
+            bucket.setOrderCount(bucket.getOrderCount() + day.getOrderCount());
+        }
+
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * Tinh lai toan bo revenue_daily tu invoices
+     * 1 aggregation $match/$group theo ngay (dung index status, createdAt)
+     * Ghi ket qua bang bulk upsert theo ngay + xoa ngay thua, khong deleteAll
+     * @return so ngay co doanh thu
+     */
+    public int rebuild() {
+        ZoneId zoneId = ZoneId.systemDefault();
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("status").is(OrderStatus.COMPLETED.name())
+                        .and("createdAt").exists(true)),
+                Aggregation.project("totalAmount")
+                        .and(DateOperators.dateOf("createdAt")
+                                .withTimezone(DateOperators.Timezone.valueOf(zoneId.getId()))
+                                .toString(RevenueGranularity.DAY.getDateFormat()))
+                        .as("day"),
+                Aggregation.group("day")
+                        .sum("totalAmount").as("revenue")
+                        .count().as("orderCount")
+        );
+
+        List<RevenueDaily> days = mongoTemplate.aggregate(aggregation, "invoices", Document.class)
+                .getMappedResults().stream()
+                .map(doc -> RevenueDaily.builder()
+                        .id(doc.getString("_id"))
+                        .revenue(doc.get("revenue", Number.class).doubleValue())
+                        .orderCount(doc.get("orderCount", Number.class).intValue())
+                        .build())
+                .collect(Collectors.toList());
+
+        // Ghi de tung ngay (upsert) roi chi xoa cac ngay khong con doanh thu,
+        // khong xoa trang collection truoc: /admin/revenue khong bao gio doc thay rollup rong
+        if (!days.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RevenueDaily.class);
+            for (RevenueDaily day : days) {
+                bulk.upsert(Query.query(Criteria.where("_id").is(day.getId())),
+                        new Update()
+                                .set("revenue", day.getRevenue())
+                                .set("orderCount", day.getOrderCount()));
+            }
+            bulk.execute();
+        }
+        mongoTemplate.remove(
+                Query.query(Criteria.where("_id").nin(days.stream().map(RevenueDaily::getId).toList())),
+                RevenueDaily.class);
+
+        log.info("Rebuilt revenue_daily rollup: {} days", days.size());
+        return days.size();
+    }
+
+    /**
+     * Khoa ky cua 1 ngay, cung format voi RevenueGranularity.getDateFormat()
+     */
+    private String toPeriod(LocalDate day, RevenueGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> day.format(DAY_FORMAT);
+            case WEEK -> String.format("%d-W%02d",
+                    day.get(IsoFields.WEEK_BASED_YEAR), day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case MONTH -> String.format("%d-%02d", day.getYear(), day.getMonthValue());
+            case YEAR -> String.valueOf(day.getYear());
+        };
+    }
+}
@@ -5,6 +5,7 @@ import com.app.dangdoanhtoai2280603283.exception.ResourceNotFoundException;
 import com.app.dangdoanhtoai2280603283.model.Role;
 import com.app.dangdoanhtoai2280603283.model.User;
 import com.app.dangdoanhtoai2280603283.repository.UserRepository;
+import com.app.dangdoanhtoai2280603283.security.TokenVersionCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -24,6 +25,7 @@ import java.util.List;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final TokenVersionCache tokenVersionCache;
 
     /**
      * Lay danh sach tat ca user (phan trang)
@@ -57,7 +59,7 @@ public class UserService {
         // Có thể thêm logic kiểm tra ở đây nếu cần
         
         user.setRole(newRole);
-        return userRepository.save(user);
+        return saveAndRevokeTokens(user);
     }
 
     /**
@@ -66,7 +68,7 @@ public class UserService {
     public User disableUser(String userId) {
         User user = getUserById(userId);
         user.setEnabled(false);
-        return userRepository.save(user);
+        return saveAndRevokeTokens(user);
     }
 
     /**
@@ -75,7 +77,9 @@ public class UserService {
     public User enableUser(String userId) {
         User user = getUserById(userId);
         user.setEnabled(true);
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        tokenVersionCache.invalidate(userId);
+        return savedUser;
     }
 
     /**
@@ -84,7 +88,12 @@ public class UserService {
     public User toggleUserStatus(String userId) {
         User user = getUserById(userId);
         user.setEnabled(!user.getEnabled());
-        return userRepository.save(user);
+        if (!user.getEnabled()) {
+            return saveAndRevokeTokens(user);
+        }
+        User savedUser = userRepository.save(user);
+        tokenVersionCache.invalidate(userId);
+        return savedUser;
     }
 
     /**
@@ -97,6 +106,18 @@ public class UserService {
         // Có thể thêm logic kiểm tra ở đây nếu cần
         
         userRepository.delete(user);
+        tokenVersionCache.invalidate(userId);
+    }
+
+    /**
+     * Tang tokenVersion va luu user
+     * Cac JWT da cap truoc do (claim ver cu) se bi tu choi tu request tiep theo
+     */
+    private User saveAndRevokeTokens(User user) {
+        user.setTokenVersion(user.getCurrentTokenVersion() + 1);
+        User savedUser = userRepository.save(user);
+        tokenVersionCache.invalidate(savedUser.getId());
+        return savedUser;
     }
 
     /**
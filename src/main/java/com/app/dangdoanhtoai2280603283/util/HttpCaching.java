@@ -0,0 +1,51 @@
+package com.app.dangdoanhtoai2280603283.util;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Ho tro conditional GET (ETag / Last-Modified)
+ * - Controller goi notModified() truoc khi doc du lieu; true -> tra ve null, Spring tra 304 khong co body
+ * - Response 200 kem Cache-Control: no-cache de client luon hoi lai bang If-None-Match
+ */
+public final class HttpCaching {
+
+    private HttpCaching() {
+    }
+
+    /**
+     * Kiem tra If-None-Match / If-Modified-Since, dong thoi set header ETag va Last-Modified
+     */
+    public static boolean notModified(WebRequest webRequest, String etag, long lastModifiedMillis) {
+        return webRequest.checkNotModified(etag, lastModifiedMillis);
+    }
+
+    public static boolean notModified(WebRequest webRequest, String etag, LocalDateTime lastModified) {
+        return notModified(webRequest, etag, toEpochMillis(lastModified));
+    }
+
+    /**
+     * ETag cua 1 entity: loai + id + version + thoi diem cap nhat
+     * version null (du lieu cu) -> 0
+     */
+    public static String entityEtag(String type, String id, Long version, LocalDateTime lastModified) {
+        return type + "-" + id + "-v" + (version != null ? version : 0)
+                + "-" + Math.max(toEpochMillis(lastModified), 0);
+    }
+
+    public static <T> ResponseEntity<T> revalidated(T body) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime != null
+                ? dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+    }
+}
@@ -0,0 +1,154 @@
+package com.app.dangdoanhtoai2280603283.util;
+
+import com.app.dangdoanhtoai2280603283.dto.PageResponse;
+import com.app.dangdoanhtoai2280603283.exception.BadRequestException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Phan trang theo con tro (keyset pagination) tren cap (createdAt, _id)
+ * - Cursor la chuoi base64url cua "createdAt|id" cua phan tu cuoi trang truoc
+ * - Trang tiep theo duoc tim bang dieu kien khoang tren index (createdAt, _id), khong dung skip
+ * - Document chua co createdAt (du lieu cu) nam cuoi danh sach khi sap xep giam dan
+ */
+public final class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    // So phan tu toi da moi trang khi phan trang theo cursor
+    public static final int MAX_LIMIT = 100;
+
+    private final LocalDateTime createdAt;
+    private final String id;
+
+    private PageCursor(LocalDateTime createdAt, String id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static String encode(LocalDateTime createdAt, String id) {
+        String raw = (createdAt != null ? createdAt.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Giai ma cursor, tra ve null neu cursor rong (trang dau tien)
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = raw.indexOf(SEPARATOR);
+            if (separatorIndex < 0 || separatorIndex == raw.length() - 1) {
+                throw new BadRequestException("Cursor khong hop le");
+            }
+            String createdAtPart = raw.substring(0, separatorIndex);
+            LocalDateTime createdAt = createdAtPart.isEmpty() ? null : LocalDateTime.parse(createdAtPart);
+            return new PageCursor(createdAt, raw.substring(separatorIndex + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Cursor khong hop le");
+        }
+    }
+
+    /**
+     * limit phai nam trong [1, MAX_LIMIT]
+     * (limit 0 -> Mongo limit(1) nhung trang rong; limit am -> limit(0) = khong gioi han)
+     */
+    public static void validateLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit phai nam trong khoang 1.." + MAX_LIMIT);
+        }
+    }
+
+    /**
+     * Tao query lay trang tiep theo sau cursor
+     * Lay du limit + 1 phan tu de biet con trang sau hay khong
+     */
+    public static Query seekQuery(Criteria filter, String cursor, Sort.Direction direction, int limit) {
+        validateLimit(limit);
+        PageCursor after = decode(cursor);
+        Criteria criteria = after == null
+                ? filter
+                : new Criteria().andOperator(filter, after.seekCriteria(direction));
+
+        return Query.query(criteria)
+                .with(Sort.by(direction, "createdAt", "_id"))
+                .limit(limit + 1);
+    }
+
+    /**
+     * Cat ket qua seekQuery ve dung limit va sinh nextCursor
+     * total chi duoc dem khi client yeu cau (countSupplier != null)
+     */
+    public static <T, R> PageResponse<List<R>> toPageResponse(
+            List<T> fetched,
+            int limit,
+            Function<T, LocalDateTime> createdAtOf,
+            Function<T, String> idOf,
+            Function<T, R> mapper,
+            LongSupplier countSupplier) {
+
+        validateLimit(limit);
+        boolean hasNext = fetched.size() > limit;
+        List<T> pageItems = hasNext ? fetched.subList(0, limit) : fetched;
+
+        String nextCursor = null;
+        if (hasNext) {
+            T last = pageItems.get(pageItems.size() - 1);
+            nextCursor = encode(createdAtOf.apply(last), idOf.apply(last));
+        }
+
+        PageResponse.PageResponseBuilder<List<R>> builder = PageResponse.<List<R>>builder()
+                .content(pageItems.stream().map(mapper).toList())
+                .limit(limit)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor);
+
+        if (countSupplier != null) {
+            long total = countSupplier.getAsLong();
+            builder.total(total).totalPages((int) Math.ceil((double) total / limit));
+        }
+        return builder.build();
+    }
+
+    /**
+     * DESC: createdAt < c OR (createdAt = c AND _id < id) OR createdAt null
+     * ASC:  createdAt > c OR (createdAt = c AND _id > id)
+     */
+    private Criteria seekCriteria(Sort.Direction direction) {
+        boolean desc = direction.isDescending();
+
+        if (createdAt == null) {
+            // Cursor nam trong nhom document khong co createdAt
+            Criteria sameGroup = Criteria.where("createdAt").is(null);
+            if (desc) {
+                return sameGroup.and("_id").lt(id);
+            }
+            return new Criteria().orOperator(
+                    Criteria.where("createdAt").is(null).and("_id").gt(id),
+                    Criteria.where("createdAt").ne(null));
+        }
+
+        Criteria sameTimestamp = Criteria.where("createdAt").is(createdAt);
+        if (desc) {
+            return new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(createdAt),
+                    sameTimestamp.and("_id").lt(id),
+                    Criteria.where("createdAt").is(null));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("createdAt").gt(createdAt),
+                sameTimestamp.and("_id").gt(id));
+    }
+}
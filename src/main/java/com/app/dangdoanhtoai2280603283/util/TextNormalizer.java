@@ -0,0 +1,44 @@
+package com.app.dangdoanhtoai2280603283.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuan hoa chuoi tieng Viet de tim kiem
+ * - Bo dau (NFD + xoa combining marks), đ -> d
+ * - Chuyen ve chu thuong, ky tu khong phai chu/so thanh khoang trang
+ * Vi du: "Sách Lập Trình" -> "sach lap trinh"
+ */
+public final class TextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private TextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String withoutD = text.replace('đ', 'd').replace('Đ', 'D');
+        String decomposed = Normalizer.normalize(withoutD, Normalizer.Form.NFD);
+        String withoutMarks = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        String lower = withoutMarks.toLowerCase(Locale.ROOT);
+        return NON_ALPHANUMERIC.matcher(lower).replaceAll(" ").trim();
+    }
+
+    /**
+     * Chuan hoa va tach thanh cac tu
+     */
+    public static List<String> tokenize(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.asList(normalized.split(" "));
+    }
+}
@@ -0,0 +1,121 @@
+package com.app.dangdoanhtoai2280603283.security;
+
+import com.app.dangdoanhtoai2280603283.exception.BadRequestException;
+import com.app.dangdoanhtoai2280603283.model.CartItem;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GuestCartCookieTests {
+
+    private GuestCartCookie guestCartCookie;
+
+    @BeforeEach
+    void setUp() {
+        guestCartCookie = cookieWithSecret("test-secret-for-guest-cart-cookie");
+    }
+
+    @Test
+    void roundTripsItems() {
+        String value = write(List.of(item("book-1", 2), item("book-2", 5)));
+
+        List<CartItem> items = read(value);
+
+        assertThat(items).extracting(CartItem::getBookId).containsExactly("book-1", "book-2");
+        assertThat(items).extracting(CartItem::getQuantity).containsExactly(2, 5);
+    }
+
+    @Test
+    void tamperedPayloadIsIgnored() {
+        String value = write(List.of(item("book-1", 2)));
+        String signature = value.substring(value.indexOf('.'));
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("book-1:99".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(read(forgedPayload + signature)).isEmpty();
+    }
+
+    @Test
+    void cookieSignedWithAnotherSecretIsIgnored() {
+        String value = write(List.of(item("book-1", 2)));
+
+        GuestCartCookie other = cookieWithSecret("another-secret");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(GuestCartCookie.COOKIE_NAME, value));
+
+        assertThat(other.read(request)).isEmpty();
+    }
+
+    @Test
+    void garbageValuesAreIgnored() {
+        assertThat(read("not-a-cookie")).isEmpty();
+        assertThat(read("%%%.###")).isEmpty();
+        assertThat(read(".")).isEmpty();
+        assertThat(read("")).isEmpty();
+        assertThat(guestCartCookie.read(new MockHttpServletRequest())).isEmpty();
+    }
+
+    @Test
+    void rejectsCartsAboveLimits() {
+        List<CartItem> tooMany = new ArrayList<>();
+        for (int i = 0; i <= GuestCartCookie.MAX_ITEMS; i++) {
+            tooMany.add(item("book-" + i, 1));
+        }
+        assertThatThrownBy(() -> write(tooMany)).isInstanceOf(BadRequestException.class);
+
+        assertThatThrownBy(() -> write(List.of(item("book-1", GuestCartCookie.MAX_QUANTITY + 1))))
+                .isInstanceOf(BadRequestException.class);
+
+        List<CartItem> longIds = new ArrayList<>();
+        for (int i = 0; i < GuestCartCookie.MAX_ITEMS; i++) {
+            longIds.add(item(String.format("%064d", i), GuestCartCookie.MAX_QUANTITY));
+        }
+        assertThatThrownBy(() -> write(longIds)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void emptyCartClearsCookie() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        guestCartCookie.write(response, List.of());
+
+        Cookie cookie = response.getCookie(GuestCartCookie.COOKIE_NAME);
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getMaxAge()).isZero();
+        assertThat(cookie.getValue()).isEmpty();
+    }
+
+    private String write(List<CartItem> items) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        guestCartCookie.write(response, items);
+        return response.getCookie(GuestCartCookie.COOKIE_NAME).getValue();
+    }
+
+    private List<CartItem> read(String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(GuestCartCookie.COOKIE_NAME, value));
+        return guestCartCookie.read(request);
+    }
+
+    private static GuestCartCookie cookieWithSecret(String secret) {
+        GuestCartCookie cookie = new GuestCartCookie();
+        ReflectionTestUtils.setField(cookie, "secret", secret);
+        ReflectionTestUtils.setField(cookie, "maxAgeDays", 30);
+        cookie.init();
+        return cookie;
+    }
+
+    private static CartItem item(String bookId, int quantity) {
+        return CartItem.builder().bookId(bookId).quantity(quantity).build();
+    }
+}
@@ -0,0 +1,110 @@
+package com.app.dangdoanhtoai2280603283.service;
+
+import com.app.dangdoanhtoai2280603283.dto.BookSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookPriceIndexTests {
+
+    private BookPriceIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookPriceIndex();
+        index.rebuild(() -> List.of(
+                book("b-30", 30.0, "cat-a"),
+                book("b-10", 10.0, "cat-a"),
+                book("b-20a", 20.0, "cat-b"),
+                book("b-20b", 20.0, "cat-a"),
+                book("b-40", 40.0, "cat-b"),
+                book("b-null", null, "cat-a")));
+    }
+
+    @Test
+    void priceBoundsAreInclusiveOnBothEnds() {
+        assertThat(ids(index.findByPrice(20.0, 30.0, null, 10)))
+                .containsExactlyInAnyOrder("b-20a", "b-20b", "b-30");
+        assertThat(ids(index.findByPrice(20.0, 20.0, null, 10)))
+                .containsExactlyInAnyOrder("b-20a", "b-20b");
+    }
+
+    @Test
+    void openBoundsAndEmptyRanges() {
+        assertThat(ids(index.findByPrice(null, null, null, 10)))
+                .containsExactly("b-10", "b-20a", "b-20b", "b-30", "b-40");
+        assertThat(ids(index.findByPrice(null, 15.0, null, 10))).containsExactly("b-10");
+        assertThat(ids(index.findByPrice(35.0, null, null, 10))).containsExactly("b-40");
+        assertThat(index.findByPrice(0.0, 9.99, null, 10)).isEmpty();
+        assertThat(index.findByPrice(40.01, null, null, 10)).isEmpty();
+        assertThat(index.findByPrice(30.0, 20.0, null, 10)).isEmpty();
+    }
+
+    @Test
+    void filtersByCategoryAndLimitKeepsCheapest() {
+        assertThat(ids(index.findByPrice(null, null, "cat-a", 10)))
+                .containsExactly("b-10", "b-20b", "b-30");
+        assertThat(ids(index.findByPrice(null, null, "cat-b", 1))).containsExactly("b-20a");
+        assertThat(index.findByPrice(null, null, "cat-missing", 10)).isEmpty();
+    }
+
+    @Test
+    void booksWithoutPriceAreNotIndexed() {
+        assertThat(index.size()).isEqualTo(5);
+        index.put(book("b-10", null, "cat-a"));
+        assertThat(ids(index.findByPrice(null, null, null, 10))).doesNotContain("b-10");
+    }
+
+    @Test
+    void putMovesBookToItsNewPrice() {
+        index.put(book("b-10", 35.0, "cat-b"));
+
+        assertThat(ids(index.findByPrice(null, 15.0, null, 10))).isEmpty();
+        assertThat(ids(index.findByPrice(31.0, 39.0, "cat-b", 10))).containsExactly("b-10");
+        assertThat(index.size()).isEqualTo(5);
+    }
+
+    @Test
+    void writesDoNotChangeResultsAlreadyReturned() {
+        List<BookSummary> before = index.findByPrice(null, null, null, 10);
+
+        index.put(book("b-5", 5.0, "cat-c"));
+        index.removeAll(List.of("b-30", "b-40"));
+
+        assertThat(ids(before)).hasSize(5).contains("b-30", "b-40").doesNotContain("b-5");
+        assertThat(ids(index.findByPrice(null, null, null, 10)))
+                .containsExactlyInAnyOrder("b-5", "b-10", "b-20a", "b-20b");
+        assertThat(ids(index.findByPrice(null, null, "cat-c", 10))).containsExactly("b-5");
+    }
+
+    @Test
+    void rebuildRereadsWhenWriteLandsDuringLoad() {
+        BookPriceIndex fresh = new BookPriceIndex();
+        AtomicInteger loads = new AtomicInteger();
+
+        fresh.rebuild(() -> {
+            if (loads.getAndIncrement() == 0) {
+                // Sach moi duoc ghi sau khi DB da doc xong lan dau
+                fresh.put(book("b-new", 15.0, "cat-a"));
+                return List.of(book("b-old", 10.0, "cat-a"));
+            }
+            return List.of(book("b-old", 10.0, "cat-a"), book("b-new", 15.0, "cat-a"));
+        });
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(fresh.isReady()).isTrue();
+        assertThat(ids(fresh.findByPrice(null, null, null, 10))).containsExactly("b-old", "b-new");
+    }
+
+    private static List<String> ids(List<BookSummary> books) {
+        return books.stream().map(BookSummary::getId).toList();
+    }
+
+    private static BookSummary book(String id, Double price, String categoryId) {
+        return BookSummary.builder().id(id).title(id).price(price).categoryId(categoryId).build();
+    }
+}
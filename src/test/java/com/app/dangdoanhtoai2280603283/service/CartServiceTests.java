@@ -0,0 +1,207 @@
+package com.app.dangdoanhtoai2280603283.service;
+
+import com.app.dangdoanhtoai2280603283.dto.CartBatchRequest;
+import com.app.dangdoanhtoai2280603283.dto.CartRequest;
+import com.app.dangdoanhtoai2280603283.dto.CartResponse;
+import com.app.dangdoanhtoai2280603283.exception.BadRequestException;
+import com.app.dangdoanhtoai2280603283.model.Book;
+import com.app.dangdoanhtoai2280603283.model.Cart;
+import com.app.dangdoanhtoai2280603283.model.CartItem;
+import com.app.dangdoanhtoai2280603283.repository.BookRepository;
+import com.app.dangdoanhtoai2280603283.repository.CartRepository;
+import com.app.dangdoanhtoai2280603283.repository.CategoryRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CartServiceTests {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BookSuggestIndex bookSuggestIndex;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    private CartService cartService;
+
+    @BeforeEach
+    void setUp() {
+        BookService bookService = new BookService(
+                bookRepository, categoryRepository, mongoTemplate, bookSuggestIndex, catalogVersion,
+                new CatalogCache(), new BookPriceIndex());
+        cartService = new CartService(cartRepository, bookService, mongoTemplate, catalogVersion);
+    }
+
+    @Test
+    void getCartLoadsAllBooksWithSingleQuery() {
+        List<CartItem> items = new ArrayList<>();
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            items.add(CartItem.builder().bookId("book-" + i).quantity(1).build());
+            books.add(Book.builder().id("book-" + i).title("Sach " + i).price(1000.0).build());
+        }
+        // Sach cuoi cung da bi xoa khoi catalog
+        books.remove(books.size() - 1);
+
+        when(cartRepository.findByUserId("user-1"))
+                .thenReturn(Optional.of(Cart.builder().id("cart-1").userId("user-1").items(items).build()));
+        when(bookRepository.findAllById(anyIterable())).thenReturn(books);
+
+        CartResponse response = cartService.getCart("user-1");
+
+        verify(bookRepository, times(1)).findAllById(anyIterable());
+        verify(bookRepository, never()).findById(anyString());
+        assertThat(response.getItemCount()).isEqualTo(39);
+        assertThat(response.getItems().get(0).getBookId()).isEqualTo("book-0");
+        assertThat(response.getItems().get(38).getBookId()).isEqualTo("book-38");
+        assertThat(response.getTotalAmount()).isEqualTo(39000.0);
+    }
+
+    @Test
+    void addToCartFallsBackToIncrementWhenConcurrentUpsertCreatedCart() {
+        when(bookRepository.findById("book-1")).thenReturn(Optional.of(book("book-1")));
+        Cart merged = cart(1L, line("book-1", 3));
+        // $inc (chua co dong) -> $push upsert trung unique userId -> $inc lai thanh cong
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null)
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key userId"))
+                .thenReturn(merged);
+
+        CartResponse response = cartService.addToCart("user-1", request("book-1", 1));
+
+        verify(mongoTemplate, times(3)).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Cart.class));
+        assertThat(response.getItems()).hasSize(1);
+        assertThat(response.getItems().get(0).getQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void addToCartRethrowsDuplicateKeyWhenRetryFindsNoLine() {
+        when(bookRepository.findById("book-1")).thenReturn(Optional.of(book("book-1")));
+        DuplicateKeyException duplicate = new DuplicateKeyException("E11000 duplicate key userId");
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null)
+                .thenThrow(duplicate)
+                .thenReturn(null);
+
+        assertThatThrownBy(() -> cartService.addToCart("user-1", request("book-1", 1)))
+                .isSameAs(duplicate);
+    }
+
+    @Test
+    void applyBatchRereadsCartWhenVersionGuardFails() {
+        when(bookRepository.findAllById(anyIterable())).thenReturn(List.of(book("book-1")));
+        when(cartRepository.findByUserId("user-1"))
+                .thenReturn(Optional.of(cart(1L, line("book-1", 1))))
+                .thenReturn(Optional.of(cart(2L, line("book-1", 2))));
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null)
+                .thenReturn(cart(3L, line("book-1", 3)));
+
+        CartResponse response = cartService.applyBatch("user-1", List.of(add("book-1", 1)));
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, times(2)).findAndModify(queries.capture(), updates.capture(),
+                any(FindAndModifyOptions.class), eq(Cart.class));
+        verify(cartRepository, times(2)).findByUserId("user-1");
+
+        assertThat(queries.getAllValues().get(0).getQueryObject().get("version")).isEqualTo(1L);
+        assertThat(queries.getAllValues().get(1).getQueryObject().get("version")).isEqualTo(2L);
+        // Lan thu 2 ap dung lai thao tac tren gio moi doc: 2 + 1
+        @SuppressWarnings("unchecked")
+        List<CartItem> written = (List<CartItem>) ((Document) updates.getAllValues().get(1)
+                .getUpdateObject().get("$set")).get("items");
+        assertThat(written).extracting(CartItem::getQuantity).containsExactly(3);
+        assertThat(response.getItems().get(0).getQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void applyBatchGivesUpAfterRepeatedGuardFailures() {
+        when(bookRepository.findAllById(anyIterable())).thenReturn(List.of(book("book-1")));
+        when(cartRepository.findByUserId("user-1")).thenReturn(Optional.of(cart(1L, line("book-1", 1))));
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null);
+
+        assertThatThrownBy(() -> cartService.applyBatch("user-1", List.of(add("book-1", 1))))
+                .isInstanceOf(BadRequestException.class);
+        verify(cartRepository, times(3)).findByUserId("user-1");
+    }
+
+    private static Book book(String id) {
+        return Book.builder().id(id).title("Sach " + id).author("Tac gia").price(1000.0).build();
+    }
+
+    private static CartItem line(String bookId, int quantity) {
+        return CartItem.builder()
+                .bookId(bookId)
+                .quantity(quantity)
+                .title("Sach " + bookId)
+                .author("Tac gia")
+                .price(1000.0)
+                .catalogVersion(0L)
+                .build();
+    }
+
+    private static Cart cart(long version, CartItem... items) {
+        return Cart.builder()
+                .id("cart-1")
+                .userId("user-1")
+                .items(new ArrayList<>(List.of(items)))
+                .version(version)
+                .build();
+    }
+
+    private static CartRequest request(String bookId, int quantity) {
+        return CartRequest.builder().bookId(bookId).quantity(quantity).build();
+    }
+
+    private static CartBatchRequest.Operation add(String bookId, int quantity) {
+        return CartBatchRequest.Operation.builder()
+                .action(CartBatchRequest.ADD)
+                .bookId(bookId)
+                .quantity(quantity)
+                .build();
+    }
+}
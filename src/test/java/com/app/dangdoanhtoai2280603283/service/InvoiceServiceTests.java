@@ -0,0 +1,147 @@
+package com.app.dangdoanhtoai2280603283.service;
+
+import com.app.dangdoanhtoai2280603283.dto.AdminOrderResponse;
+import com.app.dangdoanhtoai2280603283.dto.CheckoutResponse;
+import com.app.dangdoanhtoai2280603283.model.Book;
+import com.app.dangdoanhtoai2280603283.model.Cart;
+import com.app.dangdoanhtoai2280603283.model.CartItem;
+import com.app.dangdoanhtoai2280603283.model.Invoice;
+import com.app.dangdoanhtoai2280603283.model.OrderStatus;
+import com.app.dangdoanhtoai2280603283.model.User;
+import com.app.dangdoanhtoai2280603283.repository.CartRepository;
+import com.app.dangdoanhtoai2280603283.repository.InvoiceRepository;
+import com.app.dangdoanhtoai2280603283.repository.ItemRepository;
+import com.app.dangdoanhtoai2280603283.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InvoiceServiceTests {
+
+    @Mock
+    private InvoiceRepository invoiceRepository;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RevenueRollupService revenueRollupService;
+
+    @InjectMocks
+    private InvoiceService invoiceService;
+
+    @Test
+    void invoiceHasNoDbRefFields() {
+        List<Field> dbRefFields = Arrays.stream(Invoice.class.getDeclaredFields())
+                .filter(field -> field.isAnnotationPresent(DBRef.class))
+                .toList();
+
+        assertThat(dbRefFields).isEmpty();
+    }
+
+    @Test
+    void listingInvoicesNeverTouchesUsersCollection() {
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            invoices.add(Invoice.builder()
+                    .id(String.format("invoice-%08d", i))
+                    .userId("user-" + (i % 50))
+                    .username("buyer" + (i % 50))
+                    .email("buyer" + (i % 50) + "@example.com")
+                    .totalAmount(100000.0)
+                    .status(OrderStatus.PENDING)
+                    .itemCount(2)
+                    .totalQuantity(3)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        }
+        when(mongoTemplate.find(any(Query.class), eq(Invoice.class))).thenReturn(invoices);
+
+        Page<AdminOrderResponse.InvoiceResponse> page =
+                invoiceService.getAdminOrders(null, null, null, PageRequest.of(0, 1000));
+
+        assertThat(page.getContent()).hasSize(1000);
+        assertThat(page.getContent().get(7).getUsername()).isEqualTo("buyer7");
+        verifyNoInteractions(userRepository);
+        verify(mongoTemplate, never()).find(any(Query.class), any(), eq("users"));
+        verify(mongoTemplate, never()).findById(any(), any());
+        verify(mongoTemplate, never()).findById(any(), any(), anyString());
+    }
+
+    @Test
+    void checkoutUsesFixedRoundTripsRegardlessOfCartSize() {
+        List<CartItem> cartItems = new ArrayList<>();
+        Map<String, Book> booksById = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            String bookId = "book-" + i;
+            cartItems.add(CartItem.builder().bookId(bookId).quantity(2).build());
+            booksById.put(bookId, Book.builder()
+                    .id(bookId)
+                    .title("Book " + i)
+                    .author("Author")
+                    .price(10000.0)
+                    .build());
+        }
+        Cart cart = Cart.builder().id("cart-1").userId("user-1").items(cartItems).version(3L).build();
+        User user = User.builder().id("user-1").username("buyer").email("buyer@example.com").build();
+
+        when(cartRepository.findByUserId("user-1")).thenReturn(Optional.of(cart));
+        when(bookService.getBooksByIds(any())).thenReturn(booksById);
+        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        CheckoutResponse response = invoiceService.checkout(user);
+
+        assertThat(response.getSummary().getTotalItems()).isEqualTo(50);
+        assertThat(response.getSummary().getTotalQuantity()).isEqualTo(100);
+        // 1 doc gio + 1 query sach + 1 ghi hoa don + 1 xoa gio, khong phu thuoc so dong
+        verify(cartRepository, times(1)).findByUserId("user-1");
+        verify(bookService, times(1)).getBooksByIds(any());
+        verify(invoiceRepository, times(1)).save(any(Invoice.class));
+        verify(cartService, times(1)).removePurchasedItems(cart);
+        verifyNoMoreInteractions(cartRepository, bookService, invoiceRepository, cartService);
+        verifyNoInteractions(itemRepository, mongoTemplate);
+    }
+}
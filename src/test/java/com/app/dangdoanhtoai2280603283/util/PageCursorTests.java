@@ -0,0 +1,110 @@
+package com.app.dangdoanhtoai2280603283.util;
+
+import com.app.dangdoanhtoai2280603283.dto.PageResponse;
+import com.app.dangdoanhtoai2280603283.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTests {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    private record Row(LocalDateTime createdAt, String id) {
+    }
+
+    @Test
+    void nextCursorPointsAtLastRowOfPage() {
+        List<Row> fetched = rows(6);
+
+        PageResponse<List<String>> page = PageCursor.toPageResponse(
+                fetched, 5, Row::createdAt, Row::id, Row::id, null);
+
+        assertThat(page.getContent()).containsExactly("row-0", "row-1", "row-2", "row-3", "row-4");
+        assertThat(page.getHasNext()).isTrue();
+        assertThat(page.getNextCursor()).isEqualTo(PageCursor.encode(BASE.minusMinutes(4), "row-4"));
+        assertThat(page.getTotal()).isNull();
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        PageResponse<List<String>> page = PageCursor.toPageResponse(
+                rows(3), 5, Row::createdAt, Row::id, Row::id, () -> 3L);
+
+        assertThat(page.getHasNext()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(page.getTotal()).isEqualTo(3L);
+        assertThat(page.getTotalPages()).isEqualTo(1);
+    }
+
+    @Test
+    void seekQueryContinuesAfterCursor() {
+        String cursor = PageCursor.encode(BASE, "row-7");
+
+        Query query = PageCursor.seekQuery(new Criteria(), cursor, Sort.Direction.DESC, 20);
+
+        assertThat(query.getLimit()).isEqualTo(21);
+        assertThat(query.getSortObject().keySet()).containsExactly("createdAt", "_id");
+        assertThat(query.getQueryObject().toJson()).contains("row-7");
+    }
+
+    @Test
+    void cursorWithoutCreatedAtRoundTrips() {
+        String cursor = PageCursor.encode(null, "legacy-1");
+
+        Query query = PageCursor.seekQuery(new Criteria(), cursor, Sort.Direction.DESC, 10);
+
+        assertThat(query.getQueryObject().toJson()).contains("legacy-1");
+    }
+
+    @Test
+    void firstPageHasNoSeekCondition() {
+        Query query = PageCursor.seekQuery(Criteria.where("userId").is("user-1"), null, Sort.Direction.DESC, 10);
+
+        assertThat(query.getQueryObject().keySet()).containsExactly("userId");
+    }
+
+    @Test
+    void rejectsLimitOutsideAllowedRange() {
+        for (int limit : new int[]{0, -1, PageCursor.MAX_LIMIT + 1}) {
+            assertThatThrownBy(() -> PageCursor.seekQuery(new Criteria(), null, Sort.Direction.DESC, limit))
+                    .isInstanceOf(BadRequestException.class);
+            assertThatThrownBy(() -> PageCursor.toPageResponse(
+                    rows(1), limit, Row::createdAt, Row::id, Row::id, null))
+                    .isInstanceOf(BadRequestException.class);
+        }
+        PageCursor.validateLimit(1);
+        PageCursor.validateLimit(PageCursor.MAX_LIMIT);
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThatThrownBy(() -> PageCursor.decode("%%%"))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> PageCursor.decode(PageCursor.encode(BASE, "")))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> PageCursor.decode(Base64.getUrlEncoder()
+                .encodeToString("not-a-date|row-1".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(PageCursor.decode(null)).isNull();
+        assertThat(PageCursor.decode(" ")).isNull();
+    }
+
+    private static List<Row> rows(int count) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Row(BASE.minusMinutes(i), "row-" + i));
+        }
+        return rows;
+    }
+}